@@ -0,0 +1,50 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The retry policy of the batch requests that BatchWriter and BatchGetLoader send
+ * again: a limited number of attempts, with an exponential backoff and full jitter
+ * between them.
+ */
+final class Backoff {
+    static final Backoff DEFAULT = new Backoff(50, 5_000, 10);
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final int maxAttempts;
+
+    /**
+     * @param baseMillis  the longest wait before the second attempt, doubled for each later attempt
+     * @param maxMillis   the longest wait before any attempt
+     * @param maxAttempts the number of attempts, including the first, after which a request gives up
+     */
+    Backoff(long baseMillis, long maxMillis, int maxAttempts) {
+        if (baseMillis < 0 || maxMillis < 0 || maxAttempts < 1) {
+            throw new IllegalArgumentException("The backoff must not be negative and maxAttempts must be positive");
+        }
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Waits a random time between zero and the backoff of an attempt.
+     */
+    void pause(int attempt) {
+        long ceiling = Math.min(maxMillis, baseMillis << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry a batch", e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads items from an Amazon DynamoDB table one key at a time, and sends the keys
+ * that arrive close together as a single BatchGetItem request.
+ * <p>
+ * The first key after a request was sent opens a window. The keys that arrive
+ * before it closes are sent together, as soon as the window closes or 100 keys are
+ * waiting, whichever is first. If every request slot is busy when the window
+ * closes, the keys keep waiting until a request finishes, so batches grow with the
+ * load instead of queuing up as small requests. A key that is already waiting or
+ * being read is not sent again; its callers share one future.
+ * <p>
+ * The keys that DynamoDB returns in UnprocessedKeys are sent again after a backoff
+ * with full jitter, for up to ten attempts in all. A request that is rejected with
+ * ProvisionedThroughputExceededException is retried the same way. Each future
+ * completes as soon as its item arrives, with null if the table has no item with
+ * that key, or exceptionally if its key was still unprocessed after the last
+ * attempt or its request failed with any other error.
+ */
+public class BatchGetLoader implements AutoCloseable {
+    private static final int MAX_BATCH_KEYS = 100;
+
+    private final DynamoDbClient ddb;
+    private final String tableName;
+    private final long windowNanos;
+    private final int batchesInFlight;
+    private final Backoff backoff;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-get-window");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Every key that is waiting or being read, with the future its callers share.
+    private final Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> outstanding =
+            new ConcurrentHashMap<>();
+    // The keys waiting for the open window with their futures, and the number of windows opened so far.
+    private Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> waiting =
+            new LinkedHashMap<>();
+    private long window;
+    private boolean windowClosed;
+    private int inFlight;
+
+    private final AtomicLong keysRequested = new AtomicLong();
+    private final AtomicLong keysDeduplicated = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+
+    /**
+     * @param ddb             the client used to read the table
+     * @param tableName       the table to read
+     * @param window          how long to wait for more keys before sending a request
+     * @param batchesInFlight the number of BatchGetItem requests sent at the same time
+     */
+    public BatchGetLoader(DynamoDbClient ddb, String tableName, Duration window, int batchesInFlight) {
+        this(ddb, tableName, window, batchesInFlight, Backoff.DEFAULT);
+    }
+
+    BatchGetLoader(DynamoDbClient ddb, String tableName, Duration window, int batchesInFlight, Backoff backoff) {
+        if (window.isNegative() || batchesInFlight < 1) {
+            throw new IllegalArgumentException("window must not be negative and batchesInFlight must be positive");
+        }
+        this.ddb = ddb;
+        this.tableName = tableName;
+        this.windowNanos = window.toNanos();
+        this.batchesInFlight = batchesInFlight;
+        this.backoff = backoff;
+        this.executor = Executors.newFixedThreadPool(batchesInFlight);
+    }
+
+    /**
+     * Returns a future that completes with the item that has the given primary key,
+     * or with null if there is no such item.
+     */
+    public CompletableFuture<Map<String, AttributeValue>> get(Map<String, AttributeValue> key) {
+        keysRequested.incrementAndGet();
+        Map<String, AttributeValue> ownKey = Map.copyOf(key);
+        CompletableFuture<Map<String, AttributeValue>> future = new CompletableFuture<>();
+        CompletableFuture<Map<String, AttributeValue>> existing = outstanding.putIfAbsent(ownKey, future);
+        if (existing != null) {
+            keysDeduplicated.incrementAndGet();
+            return existing;
+        }
+
+        synchronized (this) {
+            waiting.put(ownKey, future);
+            if (waiting.size() == MAX_BATCH_KEYS) {
+                send();
+            } else if (waiting.size() == 1) {
+                long openedWindow = window;
+                timer.schedule(() -> closeWindow(openedWindow), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Returns the number of calls to get.
+     */
+    public long keysRequested() {
+        return keysRequested.get();
+    }
+
+    /**
+     * Returns the number of calls to get that shared the future of a key that was
+     * already waiting or being read.
+     */
+    public long keysDeduplicated() {
+        return keysDeduplicated.get();
+    }
+
+    /**
+     * Returns the number of BatchGetItem requests sent so far, including retries.
+     */
+    public long requestsSent() {
+        return requestsSent.get();
+    }
+
+    /**
+     * Returns the number of responses that left keys unprocessed, plus the number of
+     * requests rejected with ProvisionedThroughputExceededException.
+     */
+    public long throttles() {
+        return throttles.get();
+    }
+
+    /**
+     * Sends the keys that are waiting, and waits for every request to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!waiting.isEmpty()) {
+                send();
+            }
+        }
+        timer.shutdownNow();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void closeWindow(long closedWindow) {
+        // The keys of this window may already have been sent because there were 100 of them.
+        if (window != closedWindow || waiting.isEmpty()) {
+            return;
+        }
+        if (inFlight < batchesInFlight) {
+            send();
+        } else {
+            windowClosed = true;
+        }
+    }
+
+    private synchronized void finishRequest() {
+        inFlight--;
+        if (windowClosed && !waiting.isEmpty()) {
+            send();
+        }
+    }
+
+    private void send() {
+        Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> batch = waiting;
+        waiting = new LinkedHashMap<>();
+        window++;
+        windowClosed = false;
+        inFlight++;
+        executor.execute(() -> {
+            try {
+                read(batch);
+            } finally {
+                finishRequest();
+            }
+        });
+    }
+
+    /**
+     * Reads a batch of keys, sending the unprocessed keys again until there are none
+     * or the batch has used all of its attempts, and completes the future of each key.
+     * <p>
+     * A batch only completes its own futures. Once a future is completed, a new call
+     * to get with the same key creates a new future, which belongs to a later batch.
+     */
+    private void read(Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> batch) {
+        Map<String, AttributeValue> anyKey = batch.keySet().iterator().next();
+        List<Map<String, AttributeValue>> pending = new ArrayList<>(batch.keySet());
+        ProvisionedThroughputExceededException throttled = null;
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt == backoff.maxAttempts()) {
+                    throw new IllegalStateException(pending.size() + " keys of " + tableName
+                            + " were still unprocessed after " + attempt + " attempts", throttled);
+                }
+                if (attempt > 0) {
+                    backoff.pause(attempt);
+                }
+                Map<String, KeysAndAttributes> requestItems =
+                        Map.of(tableName, KeysAndAttributes.builder().keys(pending).build());
+                requestsSent.incrementAndGet();
+                BatchGetItemResponse response;
+                try {
+                    response = ddb.batchGetItem(b -> b.requestItems(requestItems));
+                } catch (ProvisionedThroughputExceededException e) {
+                    throttles.incrementAndGet();
+                    throttled = e;
+                    continue;
+                }
+
+                for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+                    complete(batch, keyOf(item, anyKey), item);
+                }
+                KeysAndAttributes unprocessed = response.unprocessedKeys().get(tableName);
+                pending = unprocessed == null ? List.of() : unprocessed.keys();
+                if (!pending.isEmpty()) {
+                    throttles.incrementAndGet();
+                }
+            }
+            // Every key that was read and has not been completed has no item.
+            for (Map<String, AttributeValue> key : new ArrayList<>(batch.keySet())) {
+                complete(batch, key, null);
+            }
+        } catch (RuntimeException e) {
+            batch.forEach((key, future) -> {
+                outstanding.remove(key, future);
+                future.completeExceptionally(e);
+            });
+        }
+    }
+
+    private void complete(Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> batch,
+            Map<String, AttributeValue> key, Map<String, AttributeValue> item) {
+        CompletableFuture<Map<String, AttributeValue>> future = batch.remove(key);
+        if (future != null) {
+            outstanding.remove(key, future);
+            future.complete(item);
+        }
+    }
+
+    /**
+     * Returns the attributes of an item that make up its primary key, using the
+     * attribute names of a key that was requested.
+     */
+    private static Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item,
+            Map<String, AttributeValue> requestedKey) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String keyName : requestedKey.keySet()) {
+            key.put(keyName, item.get(keyName));
+        }
+        return key;
+    }
+}
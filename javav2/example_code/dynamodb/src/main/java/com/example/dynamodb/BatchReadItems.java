@@ -7,12 +7,11 @@ package com.example.dynamodb;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
-import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Before running this Java V2 code example, set up your development environment, including your credentials.
@@ -49,30 +48,21 @@ public class BatchReadItems {
         Map<String, AttributeValue> key2 = new HashMap<>();
         key2.put("Artist", AttributeValue.builder().s("Artist2").build());
 
-        // Construct the batchGetItem request.
-        Map<String, KeysAndAttributes> requestItems = new HashMap<>();
-        requestItems.put(tableName, KeysAndAttributes.builder()
-            .keys(List.of(key1, key2))
-            .projectionExpression("Artist, SongTitle")
-            .build());
+        // BatchGetLoader sends both keys in one BatchGetItem request, and sends them again if DynamoDB
+        // returns them as unprocessed.
+        try (BatchGetLoader loader = new BatchGetLoader(dynamoDbClient, tableName, Duration.ofMillis(5), 1)) {
+            List<CompletableFuture<Map<String, AttributeValue>>> items = List.of(loader.get(key1), loader.get(key2));
 
-        BatchGetItemRequest batchGetItemRequest = BatchGetItemRequest.builder()
-            .requestItems(requestItems)
-            .build();
-
-        // Make the batchGetItem request.
-        BatchGetItemResponse batchGetItemResponse = dynamoDbClient.batchGetItem(batchGetItemRequest);
-
-        // Extract and print the retrieved items.
-        Map<String, List<Map<String, AttributeValue>>> responses = batchGetItemResponse.responses();
-        if (responses.containsKey(tableName)) {
-            List<Map<String, AttributeValue>> musicItems = responses.get(tableName);
-            for (Map<String, AttributeValue> item : musicItems) {
-                System.out.println("Artist: " + item.get("Artist").s() +
-                    ", SongTitle: " + item.get("SongTitle").s());
+            // Extract and print the retrieved items.
+            for (CompletableFuture<Map<String, AttributeValue>> future : items) {
+                Map<String, AttributeValue> item = future.join();
+                if (item != null) {
+                    System.out.println("Artist: " + item.get("Artist").s() +
+                        ", SongTitle: " + item.get("SongTitle").s());
+                } else {
+                    System.out.println("No item retrieved.");
+                }
             }
-        } else {
-            System.out.println("No items retrieved.");
         }
     }
 }
@@ -7,8 +7,6 @@ package com.example.dynamodb;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
@@ -64,17 +62,14 @@ public class BatchWriteItems {
         item2Attributes.put("SongTitle", AttributeValue.builder().s("SongTitle2").build());
         writeRequests.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item2Attributes).build()).build());
 
-        try {
-            // Create the BatchWriteItemRequest.
-            BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
-                .requestItems(Map.of(tableName, writeRequests))
-                .build();
-
-            // Execute the BatchWriteItem operation.
-            BatchWriteItemResponse batchWriteItemResponse = dynamoDbClient.batchWriteItem(batchWriteItemRequest);
-
-            // Process the response.
-            System.out.println("Batch write successful: " + batchWriteItemResponse);
+        // BatchWriter sends the items again if DynamoDB returns them as unprocessed.
+        try (BatchWriter batchWriter = new BatchWriter(dynamoDbClient, tableName, 1)) {
+            for (WriteRequest writeRequest : writeRequests) {
+                batchWriter.put(writeRequest.putRequest().item());
+            }
+            batchWriter.flush();
+            System.out.println("Batch write successful: " + batchWriter.itemsWritten() + " items written with "
+                + batchWriter.requestsSent() + " requests and " + batchWriter.throttles() + " throttles.");
 
         } catch (DynamoDbException e) {
             System.err.println(e.getMessage());
@@ -0,0 +1,285 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes any number of items to an Amazon DynamoDB table with BatchWriteItem.
+ * <p>
+ * Items are packed into batches of up to 25 writes and 16 MB, and a fixed number
+ * of batches are sent at the same time. When every batch is in flight, put and
+ * delete wait for one to finish, so a caller that writes an unbounded stream of
+ * items never holds more than that many batches in memory.
+ * <p>
+ * The items that DynamoDB returns in UnprocessedItems, usually because the table
+ * is throttled, are sent again after a backoff with full jitter, for up to ten
+ * attempts in all. A batch that is rejected with
+ * ProvisionedThroughputExceededException is retried the same way. A batch that
+ * still has writes left after the last attempt, or that fails with any other
+ * error, stops, and the error is thrown by the next call to flush or close.
+ * <p>
+ * A batch cannot write the same key twice, so a write replaces an earlier write of
+ * the same key that is still in the open batch. Writes of the same key that end up
+ * in different batches can be applied in any order.
+ * <p>
+ * The writer only uses the DynamoDbClient it is given, so it can write to DynamoDB
+ * Local by building that client with an endpointOverride.
+ */
+public class BatchWriter implements AutoCloseable {
+    private static final int MAX_BATCH_ITEMS = 25;
+    private static final long MAX_BATCH_BYTES = 16L * 1024 * 1024;
+
+    private final DynamoDbClient ddb;
+    private final String tableName;
+    private final List<String> keyNames = new ArrayList<>();
+    private final int batchesInFlight;
+    private final Backoff backoff;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+
+    // The open batch, keyed by primary key so that a key is only written once.
+    private final Map<Map<String, AttributeValue>, WriteRequest> batch = new LinkedHashMap<>();
+    private long batchBytes;
+
+    private final AtomicLong itemsWritten = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong throttles = new AtomicLong();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile long startNanos;
+
+    /**
+     * @param ddb             the client used to describe the table and write to it
+     * @param tableName       the table to write to
+     * @param batchesInFlight the number of BatchWriteItem requests sent at the same time
+     */
+    public BatchWriter(DynamoDbClient ddb, String tableName, int batchesInFlight) {
+        this(ddb, tableName, batchesInFlight, Backoff.DEFAULT);
+    }
+
+    BatchWriter(DynamoDbClient ddb, String tableName, int batchesInFlight, Backoff backoff) {
+        if (batchesInFlight < 1) {
+            throw new IllegalArgumentException("batchesInFlight must be positive");
+        }
+        this.ddb = ddb;
+        this.tableName = tableName;
+        this.batchesInFlight = batchesInFlight;
+        this.backoff = backoff;
+        this.inFlight = new Semaphore(batchesInFlight);
+        this.executor = Executors.newFixedThreadPool(batchesInFlight);
+
+        for (KeySchemaElement key : ddb.describeTable(b -> b.tableName(tableName)).table().keySchema()) {
+            keyNames.add(key.attributeName());
+        }
+    }
+
+    /**
+     * Adds an item to be written, and sends the open batch once it is full.
+     */
+    public synchronized void put(Map<String, AttributeValue> item) {
+        add(key(item), WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(item).build())
+                .build(), itemSize(item));
+    }
+
+    /**
+     * Adds the key of an item to be deleted, and sends the open batch once it is full.
+     */
+    public synchronized void delete(Map<String, AttributeValue> key) {
+        add(key(key), WriteRequest.builder()
+                .deleteRequest(DeleteRequest.builder().key(key).build())
+                .build(), itemSize(key));
+    }
+
+    /**
+     * Sends the open batch and waits until every batch has been written.
+     *
+     * @throws RuntimeException the first error that stopped a batch since the last flush
+     */
+    public synchronized void flush() {
+        if (!batch.isEmpty()) {
+            send();
+        }
+        inFlight.acquireUninterruptibly(batchesInFlight);
+        inFlight.release(batchesInFlight);
+
+        RuntimeException error = failure.getAndSet(null);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of items written so far.
+     */
+    public long itemsWritten() {
+        return itemsWritten.get();
+    }
+
+    /**
+     * Returns the number of BatchWriteItem requests sent so far, including retries.
+     */
+    public long requestsSent() {
+        return requestsSent.get();
+    }
+
+    /**
+     * Returns the number of responses that left items unprocessed, plus the number of
+     * requests rejected with ProvisionedThroughputExceededException.
+     */
+    public long throttles() {
+        return throttles.get();
+    }
+
+    /**
+     * Returns the number of items written per second since the first write.
+     */
+    public double itemsPerSecond() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsedNanos == 0 ? 0 : itemsWritten.get() * 1e9 / elapsedNanos;
+    }
+
+    private void add(Map<String, AttributeValue> key, WriteRequest writeRequest, long size) {
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+        if (!batch.isEmpty() && !batch.containsKey(key) && batchBytes + size > MAX_BATCH_BYTES) {
+            send();
+        }
+        // A replaced write still counts toward the size, which only makes the batch end sooner.
+        batch.put(key, writeRequest);
+        batchBytes += size;
+        if (batch.size() == MAX_BATCH_ITEMS) {
+            send();
+        }
+    }
+
+    private void send() {
+        List<WriteRequest> writeRequests = new ArrayList<>(batch.values());
+        batch.clear();
+        batchBytes = 0;
+
+        inFlight.acquireUninterruptibly();
+        executor.execute(() -> {
+            try {
+                write(writeRequests);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Writes a batch, sending the unprocessed items again until there are none or
+     * the batch has used all of its attempts.
+     */
+    private void write(List<WriteRequest> writeRequests) {
+        List<WriteRequest> pending = writeRequests;
+        ProvisionedThroughputExceededException throttled = null;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt == backoff.maxAttempts()) {
+                throw new IllegalStateException(pending.size() + " writes to " + tableName
+                        + " were still unprocessed after " + attempt + " attempts", throttled);
+            }
+            if (attempt > 0) {
+                backoff.pause(attempt);
+            }
+            Map<String, List<WriteRequest>> requestItems = Map.of(tableName, pending);
+            requestsSent.incrementAndGet();
+            BatchWriteItemResponse response;
+            try {
+                response = ddb.batchWriteItem(b -> b.requestItems(requestItems));
+            } catch (ProvisionedThroughputExceededException e) {
+                throttles.incrementAndGet();
+                throttled = e;
+                continue;
+            }
+
+            List<WriteRequest> unprocessed = response.unprocessedItems().getOrDefault(tableName, List.of());
+            itemsWritten.addAndGet(pending.size() - unprocessed.size());
+            if (!unprocessed.isEmpty()) {
+                throttles.incrementAndGet();
+            }
+            pending = unprocessed;
+        }
+    }
+
+    private Map<String, AttributeValue> key(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String keyName : keyNames) {
+            AttributeValue value = item.get(keyName);
+            if (value == null) {
+                throw new IllegalArgumentException("The item has no " + keyName + " key attribute: " + item);
+            }
+            key.put(keyName, value);
+        }
+        return key;
+    }
+
+    /**
+     * Returns an upper bound on the size of an item in a request: the UTF-8 length of
+     * its attribute names and values, with binary values counted as base64.
+     */
+    static long itemSize(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += utf8Length(attribute.getKey()) + valueSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long valueSize(AttributeValue value) {
+        long size = 8;
+        switch (value.type()) {
+            case S -> size += utf8Length(value.s());
+            case N -> size += value.n().length();
+            case B -> size += base64Length(value.b());
+            case SS -> size += value.ss().stream().mapToLong(s -> utf8Length(s) + 3).sum();
+            case NS -> size += value.ns().stream().mapToLong(n -> n.length() + 3).sum();
+            case BS -> size += value.bs().stream().mapToLong(b -> base64Length(b) + 3).sum();
+            case M -> size += itemSize(value.m());
+            case L -> size += value.l().stream().mapToLong(BatchWriter::valueSize).sum();
+            default -> size += 5;
+        }
+        return size;
+    }
+
+    private static long utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static long base64Length(SdkBytes bytes) {
+        return (bytes.asByteBuffer().remaining() + 2L) / 3 * 4;
+    }
+}
@@ -9,10 +9,9 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 // snippet-end:[dynamodb.java2.dynamoDB_scan.import]
 
 /**
@@ -29,6 +28,8 @@ import java.util.Set;
  */
 
 public class DynamoDBScanItems {
+    private static final int SEGMENTS = 4;
+
     public static void main(String[] args) {
 
         final String usage = """
@@ -56,19 +57,16 @@ public class DynamoDBScanItems {
     }
 
     public static void scanItems(DynamoDbClient ddb, String tableName) {
-        try {
-            ScanRequest scanRequest = ScanRequest.builder()
-                    .tableName(tableName)
-                    .build();
-
-            ScanResponse response = ddb.scan(scanRequest);
-            for (Map<String, AttributeValue> item : response.items()) {
+        // Scan the table in 4 segments at the same time, following LastEvaluatedKey until every item is read.
+        ParallelScanner scanner = new ParallelScanner(ddb, tableName, SEGMENTS, 0, null);
+        try (Stream<Map<String, AttributeValue>> items = scanner.scan()) {
+            items.forEach(item -> {
                 Set<String> keys = item.keySet();
                 for (String key : keys) {
                     System.out.println("The key name is " + key + "\n");
                     System.out.println("The value is " + item.get(key).s());
                 }
-            }
+            });
 
         } catch (DynamoDbException e) {
             e.printStackTrace();
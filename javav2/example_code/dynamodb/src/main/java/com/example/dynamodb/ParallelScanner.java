@@ -0,0 +1,302 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans an Amazon DynamoDB table with several Scan requests at the same time, one
+ * for each segment of the table, and returns the items as one stream.
+ * <p>
+ * Each segment follows LastEvaluatedKey until it has read all of its items. The
+ * segments hand their pages to a queue that holds two pages per segment, so a
+ * segment stops reading while the consumer of the stream falls behind. Items are
+ * returned in no particular order, and closing the stream stops the segments.
+ * <p>
+ * A segment can be limited to a number of read capacity units per second. It
+ * asks DynamoDB for the capacity each page consumed, and waits before its next
+ * request until it is back within the limit.
+ * <p>
+ * If a checkpoint file is given, the LastEvaluatedKey of a segment is written to
+ * it once the consumer has taken every item of the page. A scan with the same
+ * table, number of segments and checkpoint file starts each segment where it
+ * left off, so a long export that stops can be resumed. The checkpoint file is
+ * deleted when the scan is complete.
+ */
+public class ParallelScanner {
+    private static final String DONE = "done";
+
+    private final DynamoDbClient ddb;
+    private final String tableName;
+    private final int totalSegments;
+    private final double readCapacityPerSegment;
+    private final Path checkpointFile;
+
+    /**
+     * @param ddb                    the client used to scan the table
+     * @param tableName              the table to scan
+     * @param totalSegments          the number of segments scanned at the same time
+     * @param readCapacityPerSegment the read capacity units per second that each
+     *                               segment can consume, or 0 for no limit
+     * @param checkpointFile         the file that records the progress of each
+     *                               segment, or null to not record it
+     */
+    public ParallelScanner(DynamoDbClient ddb, String tableName, int totalSegments, double readCapacityPerSegment,
+            Path checkpointFile) {
+        if (totalSegments < 1 || readCapacityPerSegment < 0) {
+            throw new IllegalArgumentException("totalSegments must be positive and readCapacityPerSegment not negative");
+        }
+        this.ddb = ddb;
+        this.tableName = tableName;
+        this.totalSegments = totalSegments;
+        this.readCapacityPerSegment = readCapacityPerSegment;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Starts the segments and returns their items. The stream must be closed if it
+     * is not read to the end.
+     */
+    public Stream<Map<String, AttributeValue>> scan() {
+        Scan scan = new Scan();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scan, Spliterator.NONNULL), false)
+                .onClose(scan::close);
+    }
+
+    /**
+     * A page of items read by a segment. The last page of a segment has no
+     * LastEvaluatedKey, and a page with an error ends the scan.
+     */
+    private record Page(int segment, List<Map<String, AttributeValue>> items,
+            Map<String, AttributeValue> lastEvaluatedKey, RuntimeException error) {
+    }
+
+    private final class Scan implements Iterator<Map<String, AttributeValue>> {
+        private final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(2 * totalSegments);
+        private final ExecutorService executor = Executors.newFixedThreadPool(totalSegments, runnable -> {
+            Thread thread = new Thread(runnable, "scan-segment");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final String[] checkpoints = new String[totalSegments];
+        private final String header = tableName + " " + totalSegments;
+        private int segmentsLeft;
+        private Page page;
+        private Iterator<Map<String, AttributeValue>> items = List.<Map<String, AttributeValue>>of().iterator();
+
+        private Scan() {
+            readCheckpoints();
+            for (int segment = 0; segment < totalSegments; segment++) {
+                if (DONE.equals(checkpoints[segment])) {
+                    continue;
+                }
+                Map<String, AttributeValue> startKey = checkpoints[segment] == null ? null
+                        : decodeKey(checkpoints[segment]);
+                int scanSegment = segment;
+                segmentsLeft++;
+                executor.execute(() -> scanSegment(scanSegment, startKey));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!items.hasNext()) {
+                if (page != null) {
+                    // The consumer has taken every item of the page.
+                    checkpoint(page);
+                    page = null;
+                }
+                if (segmentsLeft == 0) {
+                    close();
+                    deleteCheckpoints();
+                    return false;
+                }
+                try {
+                    page = pages.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new IllegalStateException("Interrupted while scanning " + tableName, e);
+                }
+                if (page.error() != null) {
+                    close();
+                    throw page.error();
+                }
+                if (page.lastEvaluatedKey() == null) {
+                    segmentsLeft--;
+                }
+                items = page.items().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Map<String, AttributeValue> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return items.next();
+        }
+
+        private void close() {
+            executor.shutdownNow();
+        }
+
+        private void scanSegment(int segment, Map<String, AttributeValue> startKey) {
+            Map<String, AttributeValue> exclusiveStartKey = startKey;
+            long nextRequestNanos = System.nanoTime();
+            try {
+                do {
+                    TimeUnit.NANOSECONDS.sleep(nextRequestNanos - System.nanoTime());
+                    Map<String, AttributeValue> requestStartKey = exclusiveStartKey;
+                    ScanResponse response = ddb.scan(b -> b
+                            .tableName(tableName)
+                            .segment(segment)
+                            .totalSegments(totalSegments)
+                            .exclusiveStartKey(requestStartKey)
+                            .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+
+                    if (readCapacityPerSegment > 0 && response.consumedCapacity() != null) {
+                        double consumed = response.consumedCapacity().capacityUnits();
+                        nextRequestNanos = Math.max(nextRequestNanos, System.nanoTime())
+                                + (long) (consumed / readCapacityPerSegment * 1e9);
+                    }
+                    exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                            ? response.lastEvaluatedKey()
+                            : null;
+                    pages.put(new Page(segment, response.items(), exclusiveStartKey, null));
+                } while (exclusiveStartKey != null);
+            } catch (InterruptedException e) {
+                // The stream was closed.
+            } catch (RuntimeException e) {
+                try {
+                    pages.put(new Page(segment, List.of(), null, e));
+                } catch (InterruptedException closed) {
+                    // The stream was closed.
+                }
+            }
+        }
+
+        private void checkpoint(Page page) {
+            if (checkpointFile == null) {
+                return;
+            }
+            checkpoints[page.segment()] = page.lastEvaluatedKey() == null ? DONE : encodeKey(page.lastEvaluatedKey());
+            StringBuilder contents = new StringBuilder(header).append('\n');
+            for (int segment = 0; segment < totalSegments; segment++) {
+                if (checkpoints[segment] != null) {
+                    contents.append(segment).append(' ').append(checkpoints[segment]).append('\n');
+                }
+            }
+
+            // Replace the checkpoint file in one step, so a crash cannot leave half of it.
+            try {
+                Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+                Files.writeString(temporary, contents, StandardCharsets.UTF_8);
+                Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void readCheckpoints() {
+            if (checkpointFile == null || !Files.exists(checkpointFile)) {
+                return;
+            }
+            try {
+                List<String> lines = Files.readAllLines(checkpointFile, StandardCharsets.UTF_8);
+                if (lines.isEmpty() || !lines.get(0).equals(header)) {
+                    // The checkpoint is for another table or number of segments.
+                    return;
+                }
+                for (String line : lines.subList(1, lines.size())) {
+                    int space = line.indexOf(' ');
+                    checkpoints[Integer.parseInt(line.substring(0, space))] = line.substring(space + 1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void deleteCheckpoints() {
+            if (checkpointFile == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(checkpointFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Encodes a key as space-separated name:type:value attributes, with the name and
+     * the value in base64 so that they cannot contain spaces or newlines.
+     */
+    static String encodeKey(Map<String, AttributeValue> key) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, AttributeValue> attribute : key.entrySet()) {
+            AttributeValue value = attribute.getValue();
+            byte[] bytes = switch (value.type()) {
+                case S -> value.s().getBytes(StandardCharsets.UTF_8);
+                case N -> value.n().getBytes(StandardCharsets.UTF_8);
+                case B -> value.b().asByteArray();
+                default -> throw new IllegalArgumentException("A key attribute cannot be of type " + value.type());
+            };
+            if (encoded.length() > 0) {
+                encoded.append(' ');
+            }
+            encoded.append(encoder.encodeToString(attribute.getKey().getBytes(StandardCharsets.UTF_8)))
+                    .append(':').append(value.type()).append(':').append(encoder.encodeToString(bytes));
+        }
+        return encoded.toString();
+    }
+
+    static Map<String, AttributeValue> decodeKey(String encoded) {
+        Base64.Decoder decoder = Base64.getDecoder();
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String attribute : encoded.split(" ")) {
+            int first = attribute.indexOf(':');
+            int colon = attribute.indexOf(':', first + 1);
+            String name = new String(decoder.decode(attribute.substring(0, first)), StandardCharsets.UTF_8);
+            String type = attribute.substring(first + 1, colon);
+            byte[] bytes = decoder.decode(attribute.substring(colon + 1));
+            key.put(name, switch (type) {
+                case "S" -> AttributeValue.fromS(new String(bytes, StandardCharsets.UTF_8));
+                case "N" -> AttributeValue.fromN(new String(bytes, StandardCharsets.UTF_8));
+                case "B" -> AttributeValue.fromB(SdkBytes.fromByteArray(bytes));
+                default -> throw new IllegalArgumentException("Unknown key attribute type " + type);
+            });
+        }
+        return key;
+    }
+}
@@ -20,7 +20,7 @@ import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
@@ -30,10 +30,9 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeAction;
 import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -55,8 +54,8 @@ import java.util.Set;
  * This Java example performs these tasks:
  *
  * 1. Creates the Amazon DynamoDB Movie table with partition and sort key.
- * 2. Puts data into the Amazon DynamoDB table from a JSON document using the
- * Enhanced client.
+ * 2. Streams data from a JSON document into the Amazon DynamoDB table with
+ * parallel batch writes.
  * 3. Gets data from the Movie table.
  * 4. Adds a new item.
  * 5. Updates an item.
@@ -67,6 +66,8 @@ import java.util.Set;
 
 public class Scenario {
     public static final String DASHES = new String(new char[80]).replace("\0", "-");
+    private static final int BATCHES_IN_FLIGHT = 16;
+    private static final int PROGRESS_INTERVAL = 1000;
 
     public static void main(String[] args) throws IOException {
         final String usage = """
@@ -172,10 +173,8 @@ public class Scenario {
 
         CreateTableRequest request = CreateTableRequest.builder()
                 .keySchema(tableKey)
-                .provisionedThroughput(ProvisionedThroughput.builder()
-                        .readCapacityUnits(10L)
-                        .writeCapacityUnits(10L)
-                        .build())
+                // On-demand capacity lets loadData write the whole file without being throttled.
+                .billingMode(BillingMode.PAY_PER_REQUEST)
                 .attributeDefinitions(attributeDefinitions)
                 .tableName(tableName)
                 .build();
@@ -255,36 +254,41 @@ public class Scenario {
     // snippet-end:[dynamodb.java2.scenario.scan.main]
 
     // snippet-start:[dynamodb.java2.scenario.populate_table.main]
-    // Load data into the table.
+    // Load data into the table. The file is read one movie at a time, so memory use does not grow
+    // with its size, and the movies are written with parallel BatchWriteItem requests.
     public static void loadData(DynamoDbClient ddb, String tableName, String fileName) throws IOException {
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
-                .dynamoDbClient(ddb)
-                .build();
+        TableSchema<Movies> tableSchema = TableSchema.fromBean(Movies.class);
+        ObjectMapper mapper = new ObjectMapper();
+        long put = 0;
+
+        // Mapping a movie costs far less than writing it, so the reading thread maps each movie itself
+        // and the BatchWriter sends the requests in parallel.
+        try (JsonParser parser = mapper.createParser(new File(fileName));
+                BatchWriter batchWriter = new BatchWriter(ddb, tableName, BATCHES_IN_FLIGHT)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(fileName + " does not contain a JSON array of movies.");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode currentNode = parser.readValueAsTree();
+                Movies movies = new Movies();
+                movies.setYear(currentNode.path("year").asInt());
+                movies.setTitle(currentNode.path("title").asText());
+                movies.setInfo(currentNode.path("info").toString());
+
+                // Put the data into the Amazon DynamoDB Movie table.
+                batchWriter.put(tableSchema.itemToMap(movies, true));
+                put++;
+                if (put % PROGRESS_INTERVAL == 0) {
+                    System.out.format("Put %d movies, wrote %d (%.0f movies per second).%n", put,
+                            batchWriter.itemsWritten(), batchWriter.itemsPerSecond());
+                }
+            }
 
-        DynamoDbTable<Movies> mappedTable = enhancedClient.table("Movies", TableSchema.fromBean(Movies.class));
-        JsonParser parser = new JsonFactory().createParser(new File(fileName));
-        com.fasterxml.jackson.databind.JsonNode rootNode = new ObjectMapper().readTree(parser);
-        Iterator<JsonNode> iter = rootNode.iterator();
-        ObjectNode currentNode;
-        int t = 0;
-        while (iter.hasNext()) {
-            // Only add 200 Movies to the table.
-            if (t == 200)
-                break;
-            currentNode = (ObjectNode) iter.next();
-
-            int year = currentNode.path("year").asInt();
-            String title = currentNode.path("title").asText();
-            String info = currentNode.path("info").toString();
-
-            Movies movies = new Movies();
-            movies.setYear(year);
-            movies.setTitle(title);
-            movies.setInfo(info);
-
-            // Put the data into the Amazon DynamoDB Movie table.
-            mappedTable.putItem(movies);
-            t++;
+            batchWriter.flush();
+            System.out.format("Loaded %d movies with %d requests and %d throttles (%.0f movies per second).%n",
+                    batchWriter.itemsWritten(), batchWriter.requestsSent(), batchWriter.throttles(),
+                    batchWriter.itemsPerSecond());
         }
     }
     // snippet-end:[dynamodb.java2.scenario.populate_table.main]
@@ -0,0 +1,318 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb.enhanced;
+
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recently read items of a DynamoDbTable in memory, so that reading
+ * a hot item again does not call Amazon DynamoDB.
+ * <p>
+ * getItem reads through the cache: on a miss it reads the table with a strongly
+ * consistent read and keeps the result, including the fact that there is no item
+ * with that key. The cache holds
+ * a fixed number of keys and evicts the least recently used one. An entry older
+ * than the time to live is read again. Items are kept as attribute maps and mapped
+ * to a new object on every hit, so a caller that changes an item cannot change the
+ * cached copy.
+ * <p>
+ * putItem, updateItem and deleteItem write to the table and then drop the key from
+ * the cache, so the next read returns the new item. Writes made by other
+ * processes are only seen once the entry expires, unless the cache follows the
+ * table's DynamoDB stream with {@link #followStream}, which drops every key that
+ * the stream reports as changed.
+ */
+public class CachingTable<T> {
+    // Cached for a key with no item, so that repeated reads of a missing key are also served from the cache.
+    private static final Map<String, AttributeValue> NO_ITEM = Map.of();
+
+    private final DynamoDbTable<T> table;
+    private final TableSchema<T> tableSchema;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param table       the table to read and write
+     * @param maximumSize the number of keys the cache holds
+     * @param ttl         how long an entry is used before the item is read again
+     */
+    public CachingTable(DynamoDbTable<T> table, int maximumSize, Duration ttl) {
+        if (maximumSize < 1 || ttl.isNegative()) {
+            throw new IllegalArgumentException("maximumSize must be positive and ttl must not be negative");
+        }
+        this.table = table;
+        this.tableSchema = table.tableSchema();
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the item with the given key, or null if there is none.
+     */
+    public T getItem(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.item != null && System.nanoTime() - entry.loadedNanos < ttlNanos) {
+            hits.incrementAndGet();
+            return entry.item.isEmpty() ? null : tableSchema.mapToItem(entry.item);
+        }
+
+        // Mark the key as being read. If it is invalidated before the read returns, the mark is gone
+        // and the result, which may be older than the write, is not cached.
+        misses.incrementAndGet();
+        Entry loading = new Entry(null, 0);
+        synchronized (entries) {
+            entries.put(key, loading);
+        }
+        T item;
+        try {
+            // An eventually consistent read could return the item as it was before a write that just dropped
+            // the key, and that old item would then be cached for the whole time to live.
+            item = table.getItem(r -> r.key(key).consistentRead(true));
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key, loading);
+            }
+            throw e;
+        }
+        Map<String, AttributeValue> attributes = item == null ? NO_ITEM : Map.copyOf(tableSchema.itemToMap(item, true));
+        synchronized (entries) {
+            if (entries.get(key) == loading) {
+                entries.put(key, new Entry(attributes, System.nanoTime()));
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Writes an item to the table and drops its key from the cache.
+     */
+    public void putItem(T item) {
+        try {
+            table.putItem(item);
+        } finally {
+            invalidate(table.keyFrom(item));
+        }
+    }
+
+    /**
+     * Updates an item in the table, drops its key from the cache, and returns the
+     * item as it is after the update.
+     */
+    public T updateItem(T item) {
+        try {
+            return table.updateItem(item);
+        } finally {
+            invalidate(table.keyFrom(item));
+        }
+    }
+
+    /**
+     * Deletes an item from the table, drops its key from the cache, and returns the
+     * item that was deleted, or null if there was none.
+     */
+    public T deleteItem(Key key) {
+        try {
+            return table.deleteItem(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Drops a key from the cache, so that the next read goes to the table.
+     */
+    public void invalidate(Key key) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Drops every key from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the table, for the operations that do not go through the cache.
+     */
+    public DynamoDbTable<T> table() {
+        return table;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Starts a thread that reads the table's DynamoDB stream and drops every key that
+     * it reports as changed. The stream can use any view type, because only the keys
+     * of its records are used. Close the returned feed to stop the thread.
+     *
+     * @param streamsClient the client used to read the stream
+     * @param streamArn     the ARN of the table's stream
+     * @param pollInterval  how long to wait between two reads of the stream's shards
+     */
+    public AutoCloseable followStream(DynamoDbStreamsClient streamsClient, String streamArn, Duration pollInterval) {
+        InvalidationFeed feed = new InvalidationFeed(streamsClient, streamArn, pollInterval);
+        Thread thread = new Thread(feed, "cache-invalidation-" + table.tableName());
+        thread.setDaemon(true);
+        thread.start();
+        return thread::interrupt;
+    }
+
+    private Key keyOf(Map<String, AttributeValue> keyAttributes) {
+        Key.Builder key = Key.builder()
+                .partitionValue(keyAttributes.get(tableSchema.tableMetadata().primaryPartitionKey()));
+        tableSchema.tableMetadata().primarySortKey()
+                .ifPresent(sortKey -> key.sortValue(keyAttributes.get(sortKey)));
+        return key.build();
+    }
+
+    /**
+     * A cached item, or a key being read when the item is null.
+     */
+    private static final class Entry {
+        private final Map<String, AttributeValue> item;
+        private final long loadedNanos;
+
+        private Entry(Map<String, AttributeValue> item, long loadedNanos) {
+            this.item = item;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+
+    /**
+     * Reads every open shard of a stream from its latest record, and the shards that
+     * are created later from their first record.
+     */
+    private final class InvalidationFeed implements Runnable {
+        private final DynamoDbStreamsClient streamsClient;
+        private final String streamArn;
+        private final long pollMillis;
+        private final Map<String, String> iterators = new HashMap<>();
+        private final Set<String> knownShards = new HashSet<>();
+
+        private InvalidationFeed(DynamoDbStreamsClient streamsClient, String streamArn, Duration pollInterval) {
+            this.streamsClient = streamsClient;
+            this.streamArn = streamArn;
+            this.pollMillis = pollInterval.toMillis();
+        }
+
+        @Override
+        public void run() {
+            boolean started = false;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    discoverShards(started);
+                    started = true;
+                    for (Map.Entry<String, String> shard : new HashMap<>(iterators).entrySet()) {
+                        GetRecordsResponse response = streamsClient.getRecords(b -> b.shardIterator(shard.getValue()));
+                        for (Record record : response.records()) {
+                            invalidate(keyOf(record.dynamodb().keys()));
+                        }
+                        if (response.nextShardIterator() == null) {
+                            // The shard is closed and every record in it has been read.
+                            iterators.remove(shard.getKey());
+                        } else {
+                            iterators.put(shard.getKey(), response.nextShardIterator());
+                        }
+                    }
+                    TimeUnit.MILLISECONDS.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // Changes may have been missed, so forget everything and start again from the latest records.
+                    invalidateAll();
+                    iterators.clear();
+                    knownShards.clear();
+                    started = false;
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(pollMillis);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void discoverShards(boolean started) {
+            String lastShardId = null;
+            do {
+                String exclusiveStartShardId = lastShardId;
+                StreamDescription stream = streamsClient.describeStream(b -> b
+                        .streamArn(streamArn)
+                        .exclusiveStartShardId(exclusiveStartShardId))
+                        .streamDescription();
+                for (Shard shard : stream.shards()) {
+                    if (!knownShards.add(shard.shardId())) {
+                        continue;
+                    }
+                    boolean closed = shard.sequenceNumberRange().endingSequenceNumber() != null;
+                    if (started || !closed) {
+                        // Shards open at the start are read from now on; shards created later from their first record.
+                        ShardIteratorType type = started ? ShardIteratorType.TRIM_HORIZON : ShardIteratorType.LATEST;
+                        iterators.put(shard.shardId(), streamsClient.getShardIterator(b -> b
+                                .streamArn(streamArn)
+                                .shardId(shard.shardId())
+                                .shardIteratorType(type))
+                                .shardIterator());
+                    }
+                }
+                lastShardId = stream.lastEvaluatedShardId();
+            } while (lastShardId != null);
+        }
+    }
+}
@@ -14,6 +14,8 @@ import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedRequest;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 // snippet-end:[dynamodb.java2.mapping.getitem.import]
 
 /*
@@ -43,6 +45,7 @@ public class EnhancedGetItem {
                 .build();
 
         getItem(enhancedClient);
+        getCachedItem(enhancedClient);
         ddb.close();
     }
 
@@ -65,5 +68,28 @@ public class EnhancedGetItem {
         }
         return result.getCustName();
     }
+
+    // Read the same item several times through a cache. Only the first read calls Amazon DynamoDB.
+    public static void getCachedItem(DynamoDbEnhancedClient enhancedClient) {
+        try {
+            DynamoDbTable<Customer> table = enhancedClient.table("Customer", TableSchema.fromBean(Customer.class));
+            CachingTable<Customer> cachingTable = new CachingTable<>(table, 10_000, Duration.ofMinutes(5));
+            Key key = Key.builder()
+                    .partitionValue("id101").sortValue("tred@noserver.com")
+                    .build();
+
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                Customer result = cachingTable.getItem(key);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                System.out.println("******* Read " + result.getCustName() + " in " + micros + " microseconds");
+            }
+            System.out.println("Cache hits: " + cachingTable.hits() + ", misses: " + cachingTable.misses());
+
+        } catch (DynamoDbException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
 }
 // snippet-end:[dynamodb.java2.mapping.getitem.main]
@@ -6,6 +6,7 @@ package com.example.dynamodb.enhanced;
 // snippet-start:[dynamodb.java2.mapping.scan.main]
 // snippet-start:[dynamodb.java2.mapping.scan.import]
 import com.example.dynamodb.Customer;
+import com.example.dynamodb.ParallelScanner;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
@@ -13,6 +14,7 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import java.util.Iterator;
+import java.util.stream.Stream;
 // snippet-end:[dynamodb.java2.mapping.scan.import]
 
 /*
@@ -29,6 +31,7 @@ import java.util.Iterator;
  * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
  */
 public class EnhancedScanRecords {
+    private static final int SEGMENTS = 4;
 
     public static void main(String[] args) {
         Region region = Region.US_EAST_1;
@@ -40,7 +43,7 @@ public class EnhancedScanRecords {
                 .dynamoDbClient(ddb)
                 .build();
 
-        scan(enhancedClient);
+        parallelScan(ddb, enhancedClient);
         ddb.close();
     }
 
@@ -60,5 +63,22 @@ public class EnhancedScanRecords {
         }
         System.out.println("Done");
     }
+
+    // Scan the table in several segments at the same time, and map each item to a Customer.
+    public static void parallelScan(DynamoDbClient ddb, DynamoDbEnhancedClient enhancedClient) {
+        DynamoDbTable<Customer> custTable = enhancedClient.table("Customer", TableSchema.fromBean(Customer.class));
+        ParallelScanner scanner = new ParallelScanner(ddb, custTable.tableName(), SEGMENTS, 0, null);
+        try (Stream<Customer> results = scanner.scan().map(item -> custTable.tableSchema().mapToItem(item))) {
+            results.forEach(rec -> {
+                System.out.println("The record id is " + rec.getId());
+                System.out.println("The name is " + rec.getCustName());
+            });
+
+        } catch (DynamoDbException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Done");
+    }
 }
 // snippet-end:[dynamodb.java2.mapping.scan.main]
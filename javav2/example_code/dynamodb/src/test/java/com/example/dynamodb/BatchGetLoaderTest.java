@@ -0,0 +1,232 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs BatchGetLoader against an in-memory stand-in for a table.
+ */
+class BatchGetLoaderTest {
+    private static final String TABLE_NAME = "Movies";
+    private static final Backoff FAST_BACKOFF = new Backoff(1, 100, 10);
+
+    @Test
+    void coalescesConcurrentGetsIntoOneRequest() throws Exception {
+        LocalTable table = new LocalTable(Integer.MAX_VALUE);
+        for (int i = 0; i < 50; i += 2) {
+            table.put("movie-" + i, "Title " + i);
+        }
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try (BatchGetLoader loader = new BatchGetLoader(table, TABLE_NAME, Duration.ofMillis(200), 1, FAST_BACKOFF)) {
+            List<CompletableFuture<CompletableFuture<Map<String, AttributeValue>>>> gets = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String id = "movie-" + i;
+                gets.add(CompletableFuture.supplyAsync(() -> loader.get(key(id)), callers));
+            }
+            for (int i = 0; i < 50; i++) {
+                Map<String, AttributeValue> item = gets.get(i).join().get(5, TimeUnit.SECONDS);
+                if (i % 2 == 0) {
+                    assertEquals("Title " + i, item.get("title").s());
+                } else {
+                    assertNull(item);
+                }
+            }
+            assertEquals(1, loader.requestsSent());
+        } finally {
+            callers.shutdown();
+        }
+        assertEquals(50, table.requests.get(0).size());
+    }
+
+    @Test
+    void sharesTheFutureOfADuplicateKey() throws Exception {
+        LocalTable table = new LocalTable(Integer.MAX_VALUE);
+        table.put("movie-1", "Title 1");
+
+        try (BatchGetLoader loader = new BatchGetLoader(table, TABLE_NAME, Duration.ofMillis(50), 1, FAST_BACKOFF)) {
+            CompletableFuture<Map<String, AttributeValue>> first = loader.get(key("movie-1"));
+            CompletableFuture<Map<String, AttributeValue>> second = loader.get(key("movie-1"));
+            assertSame(first, second);
+            assertEquals("Title 1", first.get(5, TimeUnit.SECONDS).get("title").s());
+            assertEquals(2, loader.keysRequested());
+            assertEquals(1, loader.keysDeduplicated());
+        }
+        assertEquals(List.of(Set.of("movie-1")), table.requests);
+    }
+
+    @Test
+    void sendsUnprocessedKeysAgain() throws Exception {
+        // The table reads at most 7 keys per request.
+        LocalTable table = new LocalTable(7);
+        for (int i = 0; i < 100; i++) {
+            table.put("movie-" + i, "Title " + i);
+        }
+
+        try (BatchGetLoader loader = new BatchGetLoader(table, TABLE_NAME, Duration.ofMillis(50), 1, FAST_BACKOFF)) {
+            List<CompletableFuture<Map<String, AttributeValue>>> futures = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                futures.add(loader.get(key("movie-" + i)));
+            }
+            for (int i = 0; i < 30; i++) {
+                assertEquals("Title " + i, futures.get(i).get(5, TimeUnit.SECONDS).get("title").s());
+            }
+            assertEquals(5, loader.requestsSent());
+            assertEquals(4, loader.throttles());
+        }
+        Set<String> read = table.requests.stream().flatMap(Set::stream).collect(Collectors.toSet());
+        assertEquals(30, read.size());
+    }
+
+    @Test
+    void failsKeysThatStayUnprocessed() {
+        LocalTable table = new LocalTable(0);
+        table.put("movie-1", "Title 1");
+
+        try (BatchGetLoader loader = new BatchGetLoader(table, TABLE_NAME, Duration.ofMillis(10), 1, FAST_BACKOFF)) {
+            CompletableFuture<Map<String, AttributeValue>> future = loader.get(key("movie-1"));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals(10, loader.requestsSent());
+
+            // The failed key is no longer outstanding, so a new get sends it again.
+            assertNotSame(future, loader.get(key("movie-1")));
+        }
+    }
+
+    @Test
+    void holdsClosedWindowsUntilARequestSlotIsFree() throws Exception {
+        LocalTable table = new LocalTable(Integer.MAX_VALUE);
+        table.put("movie-1", "Old title");
+        table.put("movie-2", "Title 2");
+        table.put("movie-3", "Title 3");
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        table.gate(entered, release);
+
+        try (BatchGetLoader loader = new BatchGetLoader(table, TABLE_NAME, Duration.ofMillis(10), 1, FAST_BACKOFF)) {
+            CompletableFuture<Map<String, AttributeValue>> first = loader.get(key("movie-1"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            // The only slot is busy, so these keys wait past the end of their window.
+            CompletableFuture<Map<String, AttributeValue>> second = loader.get(key("movie-2"));
+            CompletableFuture<Map<String, AttributeValue>> third = loader.get(key("movie-3"));
+            assertSame(first, loader.get(key("movie-1")));
+            Thread.sleep(100);
+            assertEquals(1, table.requests.size());
+
+            // Finishing the first request sends the keys of the closed window.
+            release.countDown();
+            assertEquals("Old title", first.get(5, TimeUnit.SECONDS).get("title").s());
+            assertEquals("Title 2", second.get(5, TimeUnit.SECONDS).get("title").s());
+            assertEquals("Title 3", third.get(5, TimeUnit.SECONDS).get("title").s());
+            assertEquals(List.of(Set.of("movie-1"), Set.of("movie-2", "movie-3")), table.requests);
+
+            // A key whose future has completed is read again by a later batch.
+            table.put("movie-1", "New title");
+            CompletableFuture<Map<String, AttributeValue>> again = loader.get(key("movie-1"));
+            assertNotSame(first, again);
+            assertEquals("New title", again.get(5, TimeUnit.SECONDS).get("title").s());
+            assertEquals("Old title", first.get().get("title").s());
+        }
+        assertEquals(3, table.requests.size());
+    }
+
+    private static Map<String, AttributeValue> key(String id) {
+        return Map.of("id", AttributeValue.fromS(id));
+    }
+
+    /**
+     * A table with an "id" partition key that reads a limited number of keys per
+     * request and returns the rest as unprocessed. The first request can be held
+     * until a latch is released.
+     */
+    private static final class LocalTable implements DynamoDbClient {
+        private final int keysPerRequest;
+        private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        private final List<Set<String>> requests = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch entered;
+        private volatile CountDownLatch release;
+
+        LocalTable(int keysPerRequest) {
+            this.keysPerRequest = keysPerRequest;
+        }
+
+        void put(String id, String title) {
+            items.put(id, Map.of("id", AttributeValue.fromS(id), "title", AttributeValue.fromS(title)));
+        }
+
+        void gate(CountDownLatch entered, CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+            List<Map<String, AttributeValue>> keys = request.requestItems().get(TABLE_NAME).keys();
+            requests.add(keys.stream().map(key -> key.get("id").s()).collect(Collectors.toSet()));
+            if (requests.size() == 1 && release != null) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            int processed = Math.min(keysPerRequest, keys.size());
+            List<Map<String, AttributeValue>> found = new ArrayList<>();
+            for (Map<String, AttributeValue> key : keys.subList(0, processed)) {
+                Map<String, AttributeValue> item = items.get(key.get("id").s());
+                if (item != null) {
+                    found.add(item);
+                }
+            }
+            List<Map<String, AttributeValue>> unprocessed = keys.subList(processed, keys.size());
+            return BatchGetItemResponse.builder()
+                    .responses(Map.of(TABLE_NAME, found))
+                    .unprocessedKeys(unprocessed.isEmpty() ? Map.of()
+                            : Map.of(TABLE_NAME, KeysAndAttributes.builder().keys(unprocessed).build()))
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs BatchWriter against an in-memory stand-in for a table that only
+ * processes part of each request.
+ */
+class BatchWriterTest {
+    private static final String TABLE_NAME = "Movies";
+    private static final Backoff FAST_BACKOFF = new Backoff(1, 100, 10);
+
+    @Test
+    void sendsUnprocessedItemsAgain() {
+        LocalTable table = new LocalTable(true);
+        try (BatchWriter writer = new BatchWriter(table, TABLE_NAME, 4, FAST_BACKOFF)) {
+            for (int i = 0; i < 200; i++) {
+                writer.put(Map.of("id", AttributeValue.fromS("movie-" + i),
+                        "title", AttributeValue.fromS("Title " + i)));
+            }
+            writer.flush();
+            writer.delete(Map.of("id", AttributeValue.fromS("movie-0")));
+            writer.flush();
+
+            assertEquals(201, writer.itemsWritten());
+            assertTrue(writer.throttles() > 0);
+            assertEquals(table.requests.get(), writer.requestsSent());
+        }
+        assertEquals(199, table.items.size());
+        assertEquals("Title 42", table.items.get("movie-42").get("title").s());
+    }
+
+    @Test
+    void failsWhenItemsStayUnprocessed() {
+        LocalTable table = new LocalTable(false);
+        BatchWriter writer = new BatchWriter(table, TABLE_NAME, 2, FAST_BACKOFF);
+        for (int i = 0; i < 30; i++) {
+            writer.put(Map.of("id", AttributeValue.fromS("movie-" + i)));
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, writer::close);
+        assertTrue(e.getMessage().contains("still unprocessed"), e.getMessage());
+        assertEquals(0, writer.itemsWritten());
+        // Both batches used all ten attempts.
+        assertEquals(20, table.requests.get());
+    }
+
+    /**
+     * A table with an "id" partition key that writes the first half of each
+     * request and returns the rest as unprocessed, or writes nothing at all.
+     */
+    private static final class LocalTable implements DynamoDbClient {
+        private final boolean processes;
+        private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        private final AtomicInteger requests = new AtomicInteger();
+
+        LocalTable(boolean processes) {
+            this.processes = processes;
+        }
+
+        @Override
+        public DescribeTableResponse describeTable(DescribeTableRequest request) {
+            return DescribeTableResponse.builder()
+                    .table(t -> t.tableName(request.tableName())
+                            .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build()))
+                    .build();
+        }
+
+        @Override
+        public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+            requests.incrementAndGet();
+            List<WriteRequest> writes = request.requestItems().get(TABLE_NAME);
+            int processed = processes ? (writes.size() + 1) / 2 : 0;
+            for (WriteRequest write : writes.subList(0, processed)) {
+                if (write.putRequest() != null) {
+                    Map<String, AttributeValue> item = write.putRequest().item();
+                    items.put(item.get("id").s(), item);
+                } else {
+                    items.remove(write.deleteRequest().key().get("id").s());
+                }
+            }
+            List<WriteRequest> unprocessed = writes.subList(processed, writes.size());
+            return BatchWriteItemResponse.builder()
+                    .unprocessedItems(unprocessed.isEmpty() ? Map.of() : Map.of(TABLE_NAME, unprocessed))
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
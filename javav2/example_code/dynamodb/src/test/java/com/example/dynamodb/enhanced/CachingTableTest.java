@@ -0,0 +1,200 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb.enhanced;
+
+import com.example.dynamodb.Customer;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs CachingTable against an in-memory stand-in for the Customer table.
+ */
+class CachingTableTest {
+    private static final Key KEY = Key.builder().partitionValue("id101").sortValue("tred@noserver.com").build();
+
+    @Test
+    void readsOnceWithAConsistentRead() {
+        LocalTable table = new LocalTable();
+        table.put("id101", "tred@noserver.com", "Tom Red");
+        CachingTable<Customer> cache = cachingTable(table, 10, Duration.ofMinutes(5));
+
+        assertEquals("Tom Red", cache.getItem(KEY).getCustName());
+        assertEquals("Tom Red", cache.getItem(KEY).getCustName());
+
+        assertEquals(1, table.reads.size());
+        assertTrue(table.reads.get(0).consistentRead());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void cachesAMissingItem() {
+        LocalTable table = new LocalTable();
+        CachingTable<Customer> cache = cachingTable(table, 10, Duration.ofMinutes(5));
+
+        assertNull(cache.getItem(KEY));
+        assertNull(cache.getItem(KEY));
+        assertEquals(1, table.reads.size());
+    }
+
+    @Test
+    void readsAgainAfterTheTimeToLive() throws InterruptedException {
+        LocalTable table = new LocalTable();
+        table.put("id101", "tred@noserver.com", "Tom Red");
+        CachingTable<Customer> cache = cachingTable(table, 10, Duration.ofMillis(50));
+
+        cache.getItem(KEY);
+        Thread.sleep(100);
+        table.put("id101", "tred@noserver.com", "Tom Redd");
+        assertEquals("Tom Redd", cache.getItem(KEY).getCustName());
+        assertEquals(2, table.reads.size());
+    }
+
+    @Test
+    void dropsAKeyThatIsWritten() {
+        LocalTable table = new LocalTable();
+        table.put("id101", "tred@noserver.com", "Tom Red");
+        CachingTable<Customer> cache = cachingTable(table, 10, Duration.ofMinutes(5));
+
+        Customer customer = cache.getItem(KEY);
+        customer.setCustName("Tom Redd");
+        // Changing a returned item does not change the cached copy.
+        assertEquals("Tom Red", cache.getItem(KEY).getCustName());
+
+        cache.putItem(customer);
+        assertEquals("Tom Redd", cache.getItem(KEY).getCustName());
+        cache.deleteItem(KEY);
+        assertNull(cache.getItem(KEY));
+        assertEquals(3, table.reads.size());
+        assertEquals(2, cache.invalidations());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedKey() {
+        LocalTable table = new LocalTable();
+        CachingTable<Customer> cache = cachingTable(table, 2, Duration.ofMinutes(5));
+
+        Key first = Key.builder().partitionValue("id1").sortValue("a@noserver.com").build();
+        Key second = Key.builder().partitionValue("id2").sortValue("b@noserver.com").build();
+        Key third = Key.builder().partitionValue("id3").sortValue("c@noserver.com").build();
+        cache.getItem(first);
+        cache.getItem(second);
+        cache.getItem(first);
+        cache.getItem(third);
+
+        assertEquals(1, cache.evictions());
+        cache.getItem(first);
+        cache.getItem(second);
+        // The first key was used more recently than the second, so only the second was read again.
+        assertEquals(4, table.reads.size());
+    }
+
+    @Test
+    void doesNotCacheAReadThatRacedAWrite() throws Exception {
+        LocalTable table = new LocalTable();
+        table.put("id101", "tred@noserver.com", "Tom Red");
+        CachingTable<Customer> cache = cachingTable(table, 10, Duration.ofMinutes(5));
+        table.entered = new CountDownLatch(1);
+        table.release = new CountDownLatch(1);
+
+        CompletableFuture<Customer> read = CompletableFuture.supplyAsync(() -> cache.getItem(KEY));
+        assertTrue(table.entered.await(5, TimeUnit.SECONDS));
+        // The key is written while the read is in flight, so the read may return the old item.
+        table.put("id101", "tred@noserver.com", "Tom Redd");
+        cache.invalidate(KEY);
+        table.release.countDown();
+        assertEquals("Tom Red", read.get(5, TimeUnit.SECONDS).getCustName());
+
+        assertEquals("Tom Redd", cache.getItem(KEY).getCustName());
+        assertEquals(2, table.reads.size());
+    }
+
+    private static CachingTable<Customer> cachingTable(LocalTable table, int maximumSize, Duration ttl) {
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(table).build();
+        return new CachingTable<>(enhancedClient.table("Customer", TableSchema.fromBean(Customer.class)),
+                maximumSize, ttl);
+    }
+
+    /**
+     * A Customer table keyed by id and email. The first read can be held until a
+     * latch is released.
+     */
+    private static final class LocalTable implements DynamoDbClient {
+        private final Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+        private final List<GetItemRequest> reads = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch entered;
+        private volatile CountDownLatch release;
+
+        void put(String id, String email, String name) {
+            items.put(key(id, email), Map.of("id", AttributeValue.fromS(id), "email", AttributeValue.fromS(email),
+                    "custName", AttributeValue.fromS(name)));
+        }
+
+        private static Map<String, AttributeValue> key(String id, String email) {
+            return Map.of("id", AttributeValue.fromS(id), "email", AttributeValue.fromS(email));
+        }
+
+        private static Map<String, AttributeValue> key(Map<String, AttributeValue> item) {
+            return Map.of("id", item.get("id"), "email", item.get("email"));
+        }
+
+        @Override
+        public GetItemResponse getItem(GetItemRequest request) {
+            reads.add(request);
+            Map<String, AttributeValue> item = items.get(key(request.key()));
+            if (reads.size() == 1 && release != null) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return GetItemResponse.builder().item(item).build();
+        }
+
+        @Override
+        public PutItemResponse putItem(PutItemRequest request) {
+            items.put(key(request.item()), request.item());
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+            return DeleteItemResponse.builder().attributes(items.remove(key(request.key()))).build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deletes large numbers of Amazon S3 objects with DeleteObjects.
+ * <p>
+ * Keys are read from a ListObjectsV2 or ListObjectVersions paginator as they are
+ * listed, packed into batches of 1,000 (the DeleteObjects limit), and several
+ * batches are deleted at the same time while listing continues. Keys that a
+ * response reports as failed with a retryable error, such as SlowDown, are sent
+ * again after a jittered backoff.
+ */
+public class BulkDeleter {
+    private static final Logger logger = LoggerFactory.getLogger(BulkDeleter.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long PROGRESS_INTERVAL = 100_000;
+    private static final Set<String> RETRYABLE_ERRORS = Set.of("SlowDown", "InternalError", "ServiceUnavailable",
+        "RequestTimeout", "OperationAborted");
+
+    private final S3Client s3;
+    private final int batchesInFlight;
+
+    /**
+     * @param s3              the client used to list and delete; its HTTP client needs
+     *                        at least {@code batchesInFlight + 1} connections
+     * @param batchesInFlight the number of DeleteObjects requests sent at the same time
+     */
+    public BulkDeleter(S3Client s3, int batchesInFlight) {
+        if (batchesInFlight < 1) {
+            throw new IllegalArgumentException("batchesInFlight must be at least 1");
+        }
+        this.s3 = s3;
+        this.batchesInFlight = batchesInFlight;
+    }
+
+    /**
+     * Deletes the current version of every object under a prefix.
+     */
+    public Result deleteObjects(String bucketName, String prefix) {
+        Stream<ObjectIdentifier> keys = s3.listObjectsV2Paginator(b -> b.bucket(bucketName).prefix(prefix))
+            .contents().stream()
+            .map(object -> ObjectIdentifier.builder().key(object.key()).build());
+        return delete(bucketName, keys.iterator());
+    }
+
+    /**
+     * Deletes every version and delete marker under a prefix, which empties a
+     * versioned bucket. For a bucket without versioning, this deletes every object.
+     */
+    public Result deleteAllVersions(String bucketName, String prefix) {
+        Stream<ObjectIdentifier> versions = s3.listObjectVersionsPaginator(b -> b.bucket(bucketName).prefix(prefix))
+            .stream()
+            .flatMap(page -> Stream.concat(
+                page.versions().stream()
+                    .map(version -> ObjectIdentifier.builder().key(version.key()).versionId(version.versionId()).build()),
+                page.deleteMarkers().stream()
+                    .map(marker -> ObjectIdentifier.builder().key(marker.key()).versionId(marker.versionId()).build())));
+        return delete(bucketName, versions.iterator());
+    }
+
+    /**
+     * Deletes the given objects in batches, returning once every batch is done.
+     */
+    public Result delete(String bucketName, Iterator<ObjectIdentifier> objects) {
+        ExecutorService executor = Executors.newFixedThreadPool(batchesInFlight);
+        Semaphore inFlight = new Semaphore(batchesInFlight);
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+
+        try {
+            while (objects.hasNext()) {
+                List<ObjectIdentifier> batch = new ArrayList<>(BATCH_SIZE);
+                while (batch.size() < BATCH_SIZE && objects.hasNext()) {
+                    batch.add(objects.next());
+                }
+
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        int batchFailed = deleteBatch(bucketName, batch);
+                        failed.addAndGet(batchFailed);
+                        long before = deleted.getAndAdd(batch.size() - batchFailed);
+                        long total = before + batch.size() - batchFailed;
+                        if (total / PROGRESS_INTERVAL != before / PROGRESS_INTERVAL) {
+                            logger.info("Deleted {} objects ({} deletes/sec)", total,
+                                (long) (total / ((System.nanoTime() - start) / 1e9)));
+                        }
+                    } catch (RuntimeException e) {
+                        logger.error("Unable to delete a batch of {} objects: {}", batch.size(), e.getMessage());
+                        failed.addAndGet(batch.size());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquireUninterruptibly(batchesInFlight);
+        } finally {
+            executor.shutdown();
+        }
+
+        return new Result(deleted.get(), failed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Deletes one batch, retrying the keys that failed with a retryable error.
+     *
+     * @return the number of objects that could not be deleted
+     */
+    private int deleteBatch(String bucketName, List<ObjectIdentifier> batch) {
+        List<ObjectIdentifier> remaining = batch;
+        int failed = 0;
+        for (int attempt = 1; ; attempt++) {
+            List<ObjectIdentifier> toDelete = remaining;
+            // Quiet mode returns only the errors, which keeps responses small.
+            DeleteObjectsResponse response = s3.deleteObjects(b -> b
+                .bucket(bucketName)
+                .delete(d -> d.objects(toDelete).quiet(true)));
+            if (!response.hasErrors() || response.errors().isEmpty()) {
+                return failed;
+            }
+
+            List<S3Error> retryable = new ArrayList<>();
+            for (S3Error error : response.errors()) {
+                if (RETRYABLE_ERRORS.contains(error.code())) {
+                    retryable.add(error);
+                } else {
+                    logger.warn("Unable to delete {}: {} {}", error.key(), error.code(), error.message());
+                    failed++;
+                }
+            }
+            if (retryable.isEmpty()) {
+                return failed;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                return failed + retryable.size();
+            }
+
+            // Match the failed keys back to their identifiers so version IDs are kept.
+            Map<String, ObjectIdentifier> byKey = toDelete.stream()
+                .collect(Collectors.toMap(id -> id.key() + "\u0000" + id.versionId(), Function.identity(),
+                    (first, second) -> first));
+            remaining = retryable.stream()
+                .map(error -> byKey.get(error.key() + "\u0000" + error.versionId()))
+                .collect(Collectors.toList());
+            sleep(attempt);
+        }
+    }
+
+    private static void sleep(int attempt) {
+        long backoff = Math.min(10_000, 100L << attempt);
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * The outcome of a bulk delete.
+     */
+    public static final class Result {
+        private final long deleted;
+        private final long failed;
+        private final long elapsedNanos;
+
+        Result(long deleted, long failed, long elapsedNanos) {
+            this.deleted = deleted;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long deleted() {
+            return deleted;
+        }
+
+        public long failed() {
+            return failed;
+        }
+
+        public double deletesPerSecond() {
+            return elapsedNanos == 0 ? 0 : deleted / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Deleted %d objects (%d failed) at %.0f deletes/sec", deleted, failed,
+                deletesPerSecond());
+        }
+    }
+}
@@ -23,6 +23,7 @@ import software.amazon.awssdk.services.s3.model.GetObjectAttributesResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ObjectAttributes;
+import software.amazon.awssdk.services.s3.model.ObjectPart;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
@@ -32,12 +33,23 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 // snippet-end:[s3.java2.s3_object_check_integrity.import]
 
 /**
@@ -51,6 +63,7 @@ import java.util.List;
 
 public class CheckObjectIntegrity {
     private final static int CHUNK_SIZE = 5 * 1024 * 1024;
+    private final static int UPLOAD_THREADS = 8;
 
     public static void main(String[] args) {
         final String USAGE = """
@@ -81,7 +94,7 @@ public class CheckObjectIntegrity {
             .region(region)
             .build();
 
-        putS3MultipartObjectBracketedByChecksum(s3, bucketName, objectKey, objectPath);
+        putS3MultipartObjectWithPipelinedChecksums(s3, bucketName, objectKey, objectPath, ChecksumAlgorithm.SHA256);
         downloadS3MultipartObjectBracketedByChecksum(s3, bucketName, objectKey);
         validateExistingFileAgainstS3Checksum(s3, bucketName, objectKey, objectPath);
     }
@@ -145,6 +158,158 @@ public class CheckObjectIntegrity {
         }
     }
 
+    /**
+     * Uploads an object to an Amazon S3 bucket using the Multipart Upload API, computing the checksum of each
+     * part on a pool of worker threads while earlier parts are being uploaded.
+     * <p>
+     * Parts are read from memory-mapped slices of the file. Each part is sent with its precomputed checksum,
+     * which Amazon S3 verifies, and the composite checksum of the object is assembled as parts complete and
+     * compared with the one returned by Amazon S3.
+     *
+     * @param s3 The S3Client instance used to interact with the Amazon S3 service.
+     * @param bucketName The name of the S3 bucket to upload the object to.
+     * @param objectKey The key (name) of the object to be uploaded.
+     * @param objectPath The local file path of the object to be uploaded.
+     * @param algorithm The checksum algorithm, either SHA256 or CRC32_C.
+     */
+    public static void putS3MultipartObjectWithPipelinedChecksums(S3Client s3, String bucketName, String objectKey,
+                                                                  String objectPath, ChecksumAlgorithm algorithm) {
+        System.out.println("Starting uploading file with pipelined " + algorithm + " checksums.");
+        ExecutorService hashers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ExecutorService uploaders = Executors.newFixedThreadPool(UPLOAD_THREADS);
+        String uploadId = null;
+        boolean completed = false;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(objectPath), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int partCount = (int) Math.max(1, (fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            PartChecksums.Composite composite = new PartChecksums.Composite(algorithm, partCount);
+            String id = s3.createMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(objectKey)
+                .checksumAlgorithm(algorithm)).uploadId();
+            uploadId = id;
+
+            // Bound the parts that are hashed but not yet uploaded.
+            Semaphore partsInFlight = new Semaphore(UPLOAD_THREADS * 2);
+            // Once a part fails, the upload is aborted, so the parts after it are not sent.
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+            for (int partNumber = 1; partNumber <= partCount && failure.get() == null; partNumber++) {
+                partsInFlight.acquire();
+                int number = partNumber;
+                long offset = (long) (number - 1) * CHUNK_SIZE;
+                long length = Math.min(CHUNK_SIZE, fileSize - offset);
+                CompletableFuture<CompletedPart> part = CompletableFuture
+                    .supplyAsync(() -> {
+                        try {
+                            ByteBuffer slice = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                            return new HashedPart(slice, PartChecksums.checksum(algorithm, slice));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, hashers)
+                    .thenApplyAsync(hashed -> {
+                        if (failure.get() != null) {
+                            throw new CancellationException("Another part failed");
+                        }
+                        CompletedPart completedPart = uploadPart(s3, bucketName, objectKey, id, number, hashed.slice,
+                            algorithm, PartChecksums.toBase64(hashed.checksum));
+                        composite.add(number, hashed.checksum);
+                        return completedPart;
+                    }, uploaders)
+                    .whenComplete((completedPart, error) -> {
+                        if (error != null) {
+                            failure.compareAndSet(null, error);
+                        }
+                        partsInFlight.release();
+                    });
+                parts.add(part);
+            }
+
+            // Wait for every part to settle so that none is uploaded after the abort.
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+            Throwable error = failure.get();
+            if (error != null) {
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            CompleteMultipartUploadResponse completedUploadResponse = s3.completeMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(id)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()));
+            completed = true;
+
+            // Amazon S3 returns the composite checksum followed by "-" and the number of parts.
+            String s3Checksum = algorithm == ChecksumAlgorithm.SHA256
+                ? completedUploadResponse.checksumSHA256()
+                : completedUploadResponse.checksumCRC32C();
+            String calculated = composite.value();
+            System.out.println("Calculated checksum of checksums: " + calculated);
+            System.out.println("S3 checksum of checksums: " + s3Checksum);
+            if (s3Checksum != null && !s3Checksum.startsWith(calculated)) {
+                throw new IOException("Full object checksum of checksums don't match S3");
+            }
+
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Whatever went wrong before the upload was completed, abort it so its parts are not kept.
+            if (!completed) {
+                abortUpload(s3, bucketName, objectKey, uploadId);
+            }
+            hashers.shutdown();
+            uploaders.shutdown();
+        }
+    }
+
+    private static CompletedPart uploadPart(S3Client s3, String bucketName, String objectKey, String uploadId,
+                                            int partNumber, ByteBuffer slice, ChecksumAlgorithm algorithm,
+                                            String checksum) {
+        UploadPartRequest.Builder request = UploadPartRequest.builder()
+            .partNumber(partNumber)
+            .uploadId(uploadId)
+            .bucket(bucketName)
+            .key(objectKey)
+            .checksumAlgorithm(algorithm);
+        if (algorithm == ChecksumAlgorithm.SHA256) {
+            request.checksumSHA256(checksum);
+        } else {
+            request.checksumCRC32C(checksum);
+        }
+
+        UploadPartResponse uploadedPart = s3.uploadPart(request.build(), RequestBody.fromContentProvider(
+            () -> new ByteBufferInputStream(slice.duplicate()), slice.remaining(), "application/octet-stream"));
+        return CompletedPart.builder()
+            .partNumber(partNumber)
+            .checksumSHA256(uploadedPart.checksumSHA256())
+            .checksumCRC32C(uploadedPart.checksumCRC32C())
+            .eTag(uploadedPart.eTag())
+            .build();
+    }
+
+    private static final class HashedPart {
+        private final ByteBuffer slice;
+        private final byte[] checksum;
+
+        private HashedPart(ByteBuffer slice, byte[] checksum) {
+            this.slice = slice;
+            this.checksum = checksum;
+        }
+    }
+
+    private static void abortUpload(S3Client s3, String bucketName, String objectKey, String uploadId) {
+        if (uploadId != null) {
+            s3.abortMultipartUpload(b -> b.bucket(bucketName).key(objectKey).uploadId(uploadId));
+        }
+    }
+
     /**
      * Downloads an S3 object that is split into multiple parts, and verifies the checksum of each part as well as the
      * overall checksum of the entire object.
@@ -214,83 +379,75 @@ public class CheckObjectIntegrity {
 
     /**
      * Validates the locally persisted file against the checksum stored in Amazon S3.
+     * <p>
+     * The parts of the file are hashed in parallel through memory-mapped slices, using the part sizes and
+     * the checksum algorithm recorded by Amazon S3.
      *
      * @param s3             The S3Client instance to interact with Amazon S3.
      * @param bucketName     The name of the S3 bucket where the object is stored.
      * @param objectKey      The key of the S3 object to be validated.
      * @param objectPath     The local file path of the object to be validated.
-     * @throws IOException   If there is an error reading the local file or validating the checksum.
-     * @throws NoSuchAlgorithmException If the specified algorithm (SHA-256) is not available.
      */
     public static void validateExistingFileAgainstS3Checksum(S3Client s3, String bucketName, String objectKey,
                                                              String objectPath) {
         System.out.println("Starting validating the locally persisted file.");
-        File file = new File(objectPath);
         GetObjectAttributesResponse objectAttributes = s3.getObjectAttributes(GetObjectAttributesRequest.builder()
             .bucket(bucketName)
             .key(objectKey)
             .objectAttributes(ObjectAttributes.OBJECT_PARTS, ObjectAttributes.CHECKSUM).build());
 
-        try (InputStream in = new FileInputStream(file)) {
-            MessageDigest sha256ChecksumOfChecksums = MessageDigest.getInstance("SHA-256");
-            MessageDigest sha256Part = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[CHUNK_SIZE];
-            int currentPart = 0;
-            int partBreak = Math.toIntExact(objectAttributes.objectParts().parts().get(currentPart).size());
-            int totalRead = 0;
-            int read = in.read(buffer);
-            while (read != -1) {
-                totalRead += read;
-                if (totalRead >= partBreak) {
-                    int difference = totalRead - partBreak;
-                    byte[] partChecksum;
-                    if (totalRead != partBreak) {
-                        sha256Part.update(buffer, 0, read - difference);
-                        partChecksum = sha256Part.digest();
-                        sha256ChecksumOfChecksums.update(partChecksum);
-                        sha256Part.reset();
-                        sha256Part.update(buffer, read - difference, difference);
-                    } else {
-                        sha256Part.update(buffer, 0, read);
-                        partChecksum = sha256Part.digest();
-                        sha256ChecksumOfChecksums.update(partChecksum);
-                        sha256Part.reset();
-                    }
-                    String base64PartChecksum = Base64.getEncoder().encodeToString(partChecksum);
-                    if (!base64PartChecksum.equals(objectAttributes.objectParts().parts()
-                        .get(currentPart).checksumSHA256())) {
-                        throw new IOException("Part checksum didn't match what persisted in S3.");
-                    }
-                    currentPart++;
-                    System.out.println(currentPart + " " + base64PartChecksum);
-                    if (currentPart < objectAttributes.objectParts().totalPartsCount()) {
-                        partBreak += objectAttributes.objectParts().parts().get(currentPart - 1).size();
+        List<ObjectPart> s3Parts = objectAttributes.objectParts().parts();
+        ChecksumAlgorithm algorithm = s3Parts.get(0).checksumSHA256() != null
+            ? ChecksumAlgorithm.SHA256
+            : ChecksumAlgorithm.CRC32_C;
+        ExecutorService hashers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try (FileChannel channel = FileChannel.open(Paths.get(objectPath), StandardOpenOption.READ)) {
+            PartChecksums.Composite composite = new PartChecksums.Composite(algorithm, s3Parts.size());
+            List<CompletableFuture<String>> partChecksums = new ArrayList<>();
+            long offset = 0;
+            for (ObjectPart s3Part : s3Parts) {
+                long partOffset = offset;
+                partChecksums.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        byte[] checksum = PartChecksums.checksum(algorithm, channel, partOffset, s3Part.size());
+                        composite.add(s3Part.partNumber(), checksum);
+                        return PartChecksums.toBase64(checksum);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                } else {
-                    sha256Part.update(buffer, 0, read);
-                }
-                read = in.read(buffer);
+                }, hashers));
+                offset += s3Part.size();
+            }
+            if (offset != channel.size()) {
+                throw new IOException("The file size doesn't match the size of the object in S3.");
             }
 
-            if (currentPart != objectAttributes.objectParts().totalPartsCount()) {
-                currentPart++;
-                byte[] partChecksum = sha256Part.digest();
-                sha256ChecksumOfChecksums.update(partChecksum);
-                String base64PartChecksum = Base64.getEncoder().encodeToString(partChecksum);
-                System.out.println(currentPart + " " + base64PartChecksum);
+            for (int i = 0; i < s3Parts.size(); i++) {
+                String base64PartChecksum = partChecksums.get(i).join();
+                String s3PartChecksum = algorithm == ChecksumAlgorithm.SHA256
+                    ? s3Parts.get(i).checksumSHA256()
+                    : s3Parts.get(i).checksumCRC32C();
+                if (!base64PartChecksum.equals(s3PartChecksum)) {
+                    throw new IOException("Part checksum didn't match what persisted in S3.");
+                }
+                System.out.println(s3Parts.get(i).partNumber() + " " + base64PartChecksum);
             }
 
-            String base64CalculatedChecksumOfChecksums = Base64.getEncoder()
-                .encodeToString(sha256ChecksumOfChecksums.digest());
+            String base64CalculatedChecksumOfChecksums = composite.value();
+            String s3ChecksumOfChecksums = algorithm == ChecksumAlgorithm.SHA256
+                ? objectAttributes.checksum().checksumSHA256()
+                : objectAttributes.checksum().checksumCRC32C();
             System.out.println("Calculated checksum of checksums: " + base64CalculatedChecksumOfChecksums);
-            System.out.println("S3 persisted checksum of checksums: "
-                + objectAttributes.checksum().checksumSHA256());
-            if (!base64CalculatedChecksumOfChecksums.equals(objectAttributes.checksum().checksumSHA256())) {
+            System.out.println("S3 persisted checksum of checksums: " + s3ChecksumOfChecksums);
+            if (!base64CalculatedChecksumOfChecksums.equals(s3ChecksumOfChecksums)) {
                 throw new IOException("Full object checksum of checksums don't match S3");
             }
 
-        } catch (IOException | NoSuchAlgorithmException e) {
+        } catch (IOException | CompletionException e) {
             e.printStackTrace();
+        } finally {
+            hashers.shutdown();
         }
     }
 }
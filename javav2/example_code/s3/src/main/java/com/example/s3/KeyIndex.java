@@ -0,0 +1,109 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * A compact on-disk index of object keys and sizes, written in key order.
+ * <p>
+ * Listings of large buckets share long key prefixes, so each key is stored as
+ * the number of leading bytes it shares with the previous key followed by the
+ * remaining bytes. Lengths and sizes are stored as variable-length integers.
+ */
+public final class KeyIndex {
+    private static final int MAGIC = 0x53334B49;
+
+    private KeyIndex() {
+    }
+
+    /**
+     * Writes the objects to an index file and returns the number written. The
+     * objects must be in key order.
+     */
+    public static long write(Iterator<S3Object> objects, Path indexFile) throws IOException {
+        long count = 0;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(indexFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            byte[] previous = new byte[0];
+            while (objects.hasNext()) {
+                S3Object object = objects.next();
+                byte[] key = object.key().getBytes(StandardCharsets.UTF_8);
+                int shared = Arrays.mismatch(previous, key);
+                if (shared < 0) {
+                    shared = key.length;
+                }
+                writeVarLong(out, shared);
+                writeVarLong(out, key.length - shared);
+                out.write(key, shared, key.length - shared);
+                writeVarLong(out, object.size() == null ? 0 : object.size());
+                previous = key;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads an index file and passes each key and size to the consumer, in key order.
+     */
+    public static void read(Path indexFile, BiConsumer<String, Long> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(indexFile + " is not a key index");
+            }
+            byte[] key = new byte[256];
+            while (true) {
+                long shared;
+                try {
+                    shared = readVarLong(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                int suffix = (int) readVarLong(in);
+                int length = (int) shared + suffix;
+                if (length > key.length) {
+                    key = Arrays.copyOf(key, Math.max(length, key.length * 2));
+                }
+                in.readFully(key, (int) shared, suffix);
+                consumer.accept(new String(key, 0, length, StandardCharsets.UTF_8), readVarLong(in));
+            }
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -9,20 +9,29 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
 public class ListObjectsPaginated {
+    private static final int LIST_PARALLELISM = 16;
+
     public static void main(String[] args) {
         final String usage = """
 
             Usage:
-                <bucketName>\s
+                <bucketName> [indexFile]\s
 
             Where:
                 bucketName - The Amazon S3 bucket from which objects are read.\s
+                indexFile - (Optional) A local file to write a compact index of the keys and sizes to.\s
             """;
 
-        if (args.length != 1) {
+        if (args.length < 1 || args.length > 2) {
             System.out.println(usage);
             System.exit(1);
         }
@@ -33,7 +42,11 @@ public class ListObjectsPaginated {
             .region(region)
             .build();
 
-        listBucketObjects(s3, bucketName);
+        if (args.length == 2) {
+            listBucketObjectsToIndex(s3, bucketName, Paths.get(args[1]));
+        } else {
+            listBucketObjects(s3, bucketName);
+        }
         s3.close();
     }
 
@@ -47,7 +60,6 @@ public class ListObjectsPaginated {
         try {
             ListObjectsV2Request listReq = ListObjectsV2Request.builder()
                 .bucket(bucketName)
-                .maxKeys(1)
                 .build();
 
             ListObjectsV2Iterable listRes = s3.listObjectsV2Paginator(listReq);
@@ -60,5 +72,30 @@ public class ListObjectsPaginated {
             System.exit(1);
         }
     }
+
+    /**
+     * Lists the objects in the specified S3 bucket with several requests at the
+     * same time, and writes their keys and sizes, in key order, to an index file.
+     *
+     * @param s3 the S3Client instance used to interact with Amazon S3
+     * @param bucketName the name of the S3 bucket to list the objects from
+     * @param indexFile the file to write the index to
+     */
+    public static void listBucketObjectsToIndex(S3Client s3, String bucketName, Path indexFile) {
+        ParallelObjectLister lister = new ParallelObjectLister(s3, LIST_PARALLELISM);
+        long start = System.nanoTime();
+        try (Stream<S3Object> objects = lister.list(bucketName, "")) {
+            long count = KeyIndex.write(objects.iterator(), indexFile);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Indexed %d keys in %.1f seconds (%.0f keys/sec) to %s%n", count, seconds,
+                count / seconds, indexFile);
+        } catch (S3Exception e) {
+            System.err.println(e.awsErrorDetails().errorMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Unable to write " + indexFile + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
 // snippet-end:[s3.java2.list_objects.pag.main]
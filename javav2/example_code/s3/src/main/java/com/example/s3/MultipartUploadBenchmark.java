@@ -0,0 +1,81 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares the throughput of the multipart upload methods in
+ * {@link PerformMultiPartUpload} by uploading the same generated file with each.
+ * <p>
+ * The file is uploaded to a new bucket, which is deleted afterward. Results depend
+ * heavily on the network, so run the benchmark from an Amazon EC2 instance in the
+ * same Region as the bucket for meaningful numbers.
+ * <p>
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ * <p>
+ * For more information, see the following documentation topic:
+ * <p>
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class MultipartUploadBenchmark {
+
+
+    public static void main(String[] args) throws IOException {
+        final String usage = """
+
+            Usage:
+              <fileSizeMB>\s
+
+            Where:
+              fileSizeMB - The size of the generated file to upload, in MB (for example, 512).\s
+            """;
+
+        if (args.length != 1) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        long fileSize = Long.parseLong(args[0]) * 1024 * 1024;
+        Path file = Files.createTempFile("multipart-benchmark", ".bin");
+        writeRandomFile(file, fileSize);
+
+        PerformMultiPartUpload uploads = new PerformMultiPartUpload();
+        String filePath = file.toString();
+        PerformMultiPartUpload.createBucket();
+        try {
+            run("TransferManager", fileSize, () -> uploads.multipartUploadWithTransferManager(filePath));
+            run("S3AsyncClient (multipart)", fileSize, () -> uploads.multipartUploadWithS3AsyncClient(filePath));
+            run("S3Client, one part at a time", fileSize, () -> uploads.multipartUploadWithS3Client(filePath));
+            run("S3Client, parallel mapped parts", fileSize, () -> uploads.parallelMultipartUploadWithS3Client(filePath));
+        } finally {
+            PerformMultiPartUpload.deleteResources();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void run(String name, long fileSize, Runnable upload) {
+        long start = System.nanoTime();
+        upload.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-32s %8.2f s %8.1f MB/s%n", name, seconds, fileSize / 1024.0 / 1024.0 / seconds);
+    }
+
+    private static void writeRandomFile(Path file, long size) throws IOException {
+        // Random data, so that nothing along the way can compress it.
+        Random random = new Random();
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+}
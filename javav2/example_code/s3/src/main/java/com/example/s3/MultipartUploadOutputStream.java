@@ -0,0 +1,207 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An output stream that uploads what is written to it as an Amazon S3 multipart
+ * upload, so an object of unknown size can be written without holding it in
+ * memory or on disk.
+ * <p>
+ * Data is collected in part-sized buffers taken from a fixed pool. A full buffer
+ * is uploaded in the background and returned to the pool when its part is done,
+ * so at most {@code partsInFlight + 1} buffers exist, and a writer that gets
+ * ahead of the uploads waits for a free buffer.
+ * <p>
+ * Closing the stream completes the upload. If writing or uploading fails, the
+ * upload is aborted so that no parts are left behind.
+ */
+public class MultipartUploadOutputStream extends OutputStream {
+    // Every part except the last must be at least 5 MiB.
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucketName;
+    private final String key;
+    private final String uploadId;
+    private final int partSize;
+    private final BlockingQueue<byte[]> buffers;
+    private final ExecutorService uploader;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private byte[] buffer;
+    private int position;
+    private long bytesWritten;
+    private boolean closed;
+    private boolean aborted;
+
+    /**
+     * Starts a multipart upload.
+     *
+     * @param s3            the client used to upload the parts
+     * @param bucketName    the bucket to upload to
+     * @param key           the key of the object
+     * @param partSize      the size of each part, at least {@link #MIN_PART_SIZE}
+     * @param partsInFlight the maximum number of parts uploaded at the same time
+     */
+    public MultipartUploadOutputStream(S3Client s3, String bucketName, String key, int partSize, int partsInFlight) {
+        if (partSize < MIN_PART_SIZE || partsInFlight < 1) {
+            throw new IllegalArgumentException("partSize must be at least 5 MiB and partsInFlight at least 1");
+        }
+
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.partSize = partSize;
+        this.buffers = new ArrayBlockingQueue<>(partsInFlight + 1);
+        for (int i = 0; i <= partsInFlight; i++) {
+            buffers.add(new byte[partSize]);
+        }
+        this.uploader = Executors.newFixedThreadPool(partsInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "multipart-upload-" + key);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.uploadId = s3.createMultipartUpload(b -> b.bucket(bucketName).key(key)).uploadId();
+        this.buffer = takeBuffer();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (length > 0) {
+            int count = Math.min(length, partSize - position);
+            System.arraycopy(data, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+            bytesWritten += count;
+            if (position == partSize) {
+                uploadBuffer();
+                buffer = takeBuffer();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the stream so far.
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Uploads the last part and completes the multipart upload.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            // An empty object still needs one (empty) part.
+            if (position > 0 || parts.isEmpty()) {
+                uploadBuffer();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            s3.completeMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()));
+
+        } catch (CompletionException e) {
+            abort();
+            throw new IOException("Unable to upload " + key, e.getCause());
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            uploader.shutdown();
+        }
+    }
+
+    /**
+     * Stops the upload and deletes the parts that were already uploaded.
+     */
+    public void abort() {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        closed = true;
+        uploader.shutdownNow();
+        s3.abortMultipartUpload(b -> b.bucket(bucketName).key(key).uploadId(uploadId));
+    }
+
+    private void uploadBuffer() throws IOException {
+        // Fail fast instead of buffering more data behind a part that has failed.
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                abort();
+                throw new IOException("Unable to upload " + key, part.handle((p, e) -> e).join());
+            }
+        }
+
+        int partNumber = parts.size() + 1;
+        byte[] data = buffer;
+        int length = position;
+        buffer = null;
+        position = 0;
+        parts.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                UploadPartResponse response = s3.uploadPart(b -> b
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber),
+                    RequestBody.fromInputStream(new ByteArrayInputStream(data, 0, length), length));
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } finally {
+                buffers.add(data);
+            }
+        }, uploader));
+    }
+
+    private byte[] takeBuffer() {
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new IllegalStateException("Interrupted while waiting for a part buffer", e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads a file to Amazon S3 as a multipart upload with the synchronous
+ * {@link S3Client}, sending several parts at the same time.
+ * <p>
+ * Each part is read with a positional FileChannel read into a direct buffer, and
+ * sent from that buffer, so no part is copied into the Java heap. The uploader
+ * keeps one direct buffer for each part that can be in flight and reuses them
+ * for every part and every upload, so its off-heap memory is bounded by
+ * {@code parallelism * partSize}.
+ * <p>
+ * The ETag of every completed part is appended to a checkpoint file next to the
+ * upload. If the process stops, calling {@link #upload} again with the same
+ * checkpoint file sends only the missing parts. The checkpoint is deleted once
+ * the upload is complete. If the upload in the checkpoint no longer exists, for
+ * example because a lifecycle rule aborted it, a new upload is started. A failure
+ * that sending the parts again cannot fix, such as a denied request, aborts the
+ * upload and deletes the checkpoint.
+ */
+public class ParallelMultipartUploader {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelMultipartUploader.class);
+
+    private final S3Client s3Client;
+    private final long partSize;
+    private final int parallelism;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    /**
+     * @param s3Client    the client used to upload the parts; its HTTP client needs
+     *                    at least {@code parallelism} connections
+     * @param partSize    the size of each part except the last, at least 5 MiB
+     * @param parallelism the number of parts uploaded at the same time
+     */
+    public ParallelMultipartUploader(S3Client s3Client, long partSize, int parallelism) {
+        if (partSize < 5 * 1024 * 1024 || partSize > Integer.MAX_VALUE || parallelism < 1) {
+            throw new IllegalArgumentException("partSize must be between 5 MiB and 2 GiB and parallelism at least 1");
+        }
+        this.s3Client = s3Client;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.buffers = new ArrayBlockingQueue<>(parallelism);
+    }
+
+    /**
+     * Uploads a file, resuming the upload recorded in the checkpoint file if there
+     * is one for the same file, bucket, key, and part size.
+     *
+     * @param file       the file to upload
+     * @param bucketName the bucket to upload to
+     * @param key        the key of the object
+     * @param checkpoint the file that records the progress of the upload
+     */
+    public CompleteMultipartUploadResponse upload(Path file, String bucketName, String key, Path checkpoint)
+        throws IOException {
+        long fileSize = Files.size(file);
+        String fingerprint = String.join(" ", bucketName, key, Long.toString(fileSize),
+            Long.toString(Files.getLastModifiedTime(file).toMillis()), Long.toString(partSize));
+
+        Checkpoint state = Checkpoint.read(checkpoint, fingerprint);
+        if (state != null) {
+            logger.info("Resuming upload {} with {} parts done", state.uploadId, state.eTags.size());
+            try {
+                return finish(file, fileSize, bucketName, key, state);
+            } catch (NoSuchUploadException e) {
+                // The upload was aborted or has expired, so its parts are gone.
+                logger.info("Upload {} no longer exists; starting a new upload", state.uploadId);
+                Files.deleteIfExists(checkpoint);
+            }
+        }
+
+        String uploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key)).uploadId();
+        return finish(file, fileSize, bucketName, key, Checkpoint.create(checkpoint, fingerprint, uploadId));
+    }
+
+    /**
+     * Sends the parts that are not in the checkpoint yet and completes the upload.
+     */
+    private CompleteMultipartUploadResponse finish(Path file, long fileSize, String bucketName, String key,
+                                                   Checkpoint state) throws IOException {
+        try {
+            sendParts(file, fileSize, bucketName, key, state);
+
+            List<CompletedPart> parts = new ArrayList<>();
+            state.eTags.forEach((partNumber, eTag) -> parts.add(CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(eTag)
+                .build()));
+            parts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            CompleteMultipartUploadResponse response = s3Client.completeMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(state.uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()));
+            Files.deleteIfExists(state.path);
+            return response;
+
+        } catch (S3Exception e) {
+            if (!isRetryable(e)) {
+                abort(bucketName, key, state);
+            }
+            // Otherwise the checkpoint is kept so that the parts already uploaded are not sent again.
+            throw e;
+        }
+    }
+
+    private void sendParts(Path file, long fileSize, String bucketName, String key, Checkpoint state)
+        throws IOException {
+        int partCount = (int) Math.max(1, (fileSize + partSize - 1) / partSize);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-part");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicBoolean failed = new AtomicBoolean();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<CompletableFuture<Void>> uploads = new ArrayList<>();
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                if (state.eTags.containsKey(partNumber)) {
+                    continue;
+                }
+
+                int number = partNumber;
+                long offset = (number - 1) * partSize;
+                int length = (int) Math.min(partSize, fileSize - offset);
+                uploads.add(CompletableFuture.runAsync(() -> {
+                    // Once a part has failed, the parts that have not started yet are not sent.
+                    if (failed.get()) {
+                        return;
+                    }
+                    try {
+                        String eTag = sendPart(channel, offset, length, bucketName, key, state.uploadId, number);
+                        state.record(number, eTag);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String sendPart(FileChannel channel, long offset, int length, String bucketName, String key,
+                            String uploadId, int partNumber) {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect((int) partSize);
+        }
+        try {
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Part " + partNumber + " ends past the end of the file");
+                }
+            }
+            buffer.flip();
+
+            ByteBuffer part = buffer;
+            UploadPartResponse response = s3Client.uploadPart(b -> b
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength((long) length),
+                RequestBody.fromContentProvider(() -> new ByteBufferInputStream(part.duplicate()),
+                    length, "application/octet-stream"));
+            return response.eTag();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // The pool is only full when several uploads run at the same time; then the buffer is dropped.
+            buffers.offer(buffer);
+        }
+    }
+
+    private void abort(String bucketName, String key, Checkpoint state) throws IOException {
+        try {
+            s3Client.abortMultipartUpload(b -> b.bucket(bucketName).key(key).uploadId(state.uploadId));
+        } catch (S3Exception e) {
+            logger.warn("Unable to abort upload {}: {}", state.uploadId, e.getMessage());
+        }
+        Files.deleteIfExists(state.path);
+    }
+
+    /**
+     * Returns whether sending the same request again could succeed: server errors,
+     * throttling, and request timeouts.
+     */
+    private static boolean isRetryable(S3Exception e) {
+        return e.statusCode() >= 500 || e.statusCode() == 408 || e.isThrottlingException();
+    }
+
+    /**
+     * The progress of an upload: its ID and the ETags of the completed parts.
+     * The file holds the fingerprint of the upload on the first line, the upload
+     * ID on the second, and then one "partNumber eTag" line for each part.
+     */
+    private static final class Checkpoint {
+        private final Path path;
+        private final String uploadId;
+        private final Map<Integer, String> eTags = new ConcurrentHashMap<>();
+
+        private Checkpoint(Path path, String uploadId) {
+            this.path = path;
+            this.uploadId = uploadId;
+        }
+
+        private static Checkpoint create(Path path, String fingerprint, String uploadId) throws IOException {
+            Files.writeString(path, fingerprint + "\n" + uploadId + "\n", StandardCharsets.UTF_8);
+            return new Checkpoint(path, uploadId);
+        }
+
+        private static Checkpoint read(Path path, String fingerprint) throws IOException {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !lines.get(0).equals(fingerprint)) {
+                // The file or the settings have changed, so the old parts cannot be reused.
+                return null;
+            }
+
+            Checkpoint checkpoint = new Checkpoint(path, lines.get(1));
+            for (String line : lines.subList(2, lines.size())) {
+                int space = line.indexOf(' ');
+                // A line cut short by a crash is ignored, and its part is sent again.
+                if (space > 0 && line.endsWith("\"")) {
+                    checkpoint.eTags.put(Integer.parseInt(line.substring(0, space)), line.substring(space + 1));
+                }
+            }
+            return checkpoint;
+        }
+
+        private synchronized void record(int partNumber, String eTag) {
+            eTags.put(partNumber, eTag);
+            try {
+                Files.writeString(path, partNumber + " " + eTag + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
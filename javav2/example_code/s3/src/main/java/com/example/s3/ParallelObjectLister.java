@@ -0,0 +1,295 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists the objects in an Amazon S3 bucket with several ListObjectsV2 requests at
+ * the same time, and returns them as one stream in key order.
+ * <p>
+ * The key space is cut into disjoint ranges (after, last]. A listing with the "/"
+ * delimiter finds the keys and common prefixes directly under the starting prefix,
+ * and these become the range boundaries. When there are only a few common
+ * prefixes, each one is cut further after boundary characters such as "prefix/8".
+ * Each range is listed with StartAfter set to its lower bound, and stops at the
+ * first key past its upper bound.
+ * <p>
+ * Ranges are listed by a fixed number of threads, in order. Each range hands its
+ * pages to the reader through a small bounded queue, so listing never gets more
+ * than a few pages ahead of the reader.
+ */
+public class ParallelObjectLister {
+    private static final String DELIMITER = "/";
+    private static final String BOUNDARY_CHARACTERS =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    // Stop looking for common prefixes after this many delimiter pages.
+    private static final int MAX_DISCOVERY_PAGES = 10;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final int PAGES_AHEAD = 2;
+
+    private final S3Client s3;
+    private final int parallelism;
+
+    /**
+     * @param s3          the client used to list; its HTTP client needs at least
+     *                    {@code parallelism} connections
+     * @param parallelism the number of ranges listed at the same time
+     */
+    public ParallelObjectLister(S3Client s3, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.s3 = s3;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Lists every object under a prefix in key order. Close the stream to stop
+     * listing early.
+     */
+    public Stream<S3Object> list(String bucketName, String prefix) {
+        List<Range> ranges = partition(bucketName, prefix);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "s3-list");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Ranges run in submission order, so the range the reader is waiting for
+        // always has a thread, even when later ranges are blocked on full queues.
+        for (Range range : ranges) {
+            executor.execute(() -> range.list(s3, bucketName));
+        }
+        executor.shutdown();
+
+        Iterator<S3Object> objects = new Iterator<>() {
+            private int rangeIndex;
+            private Iterator<S3Object> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext()) {
+                    if (rangeIndex == ranges.size()) {
+                        return false;
+                    }
+                    Page next = ranges.get(rangeIndex).take();
+                    if (next.error != null) {
+                        throw next.error;
+                    }
+                    if (next.objects == null) {
+                        rangeIndex++;
+                    } else {
+                        page = next.objects.iterator();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public S3Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(objects,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(executor::shutdownNow);
+    }
+
+    /**
+     * Cuts the keys under a prefix into disjoint ranges, in key order.
+     */
+    List<Range> partition(String bucketName, String prefix) {
+        // The keys and common prefixes directly under the prefix, in key order.
+        List<String> entries = new ArrayList<>();
+        int commonPrefixCount = 0;
+        boolean complete = false;
+        String continuationToken = null;
+        for (int pages = 0; pages < MAX_DISCOVERY_PAGES && !complete; pages++) {
+            String token = continuationToken;
+            ListObjectsV2Response response = s3.listObjectsV2(b -> b
+                .bucket(bucketName)
+                .prefix(prefix)
+                .delimiter(DELIMITER)
+                .continuationToken(token));
+
+            // Within a page, keys and common prefixes are returned in separate
+            // lists, so merge them back into key order.
+            List<S3Object> contents = response.contents();
+            int c = 0;
+            for (CommonPrefix commonPrefix : response.commonPrefixes()) {
+                while (c < contents.size() && compareKeys(contents.get(c).key(), commonPrefix.prefix()) < 0) {
+                    entries.add(contents.get(c++).key());
+                }
+                entries.add(commonPrefix.prefix());
+                commonPrefixCount++;
+            }
+            while (c < contents.size()) {
+                entries.add(contents.get(c++).key());
+            }
+
+            complete = !Boolean.TRUE.equals(response.isTruncated());
+            continuationToken = response.nextContinuationToken();
+        }
+
+        int targetRanges = parallelism * RANGES_PER_THREAD;
+        List<String> boundaries = new ArrayList<>();
+        if (entries.size() >= targetRanges) {
+            for (int i = 1; i < targetRanges; i++) {
+                boundaries.add(entries.get(i * entries.size() / targetRanges));
+            }
+        } else {
+            int splits = Math.min(BOUNDARY_CHARACTERS.length(),
+                targetRanges / Math.max(1, commonPrefixCount));
+            for (String entry : entries) {
+                boundaries.add(entry);
+                // Keys directly under the prefix never contain the delimiter, so
+                // only common prefixes end with it.
+                if (entry.endsWith(DELIMITER)) {
+                    addSplits(boundaries, entry, splits, null);
+                }
+            }
+        }
+
+        // Delimiter listing stopped early, so the rest of the keys are cut
+        // after boundary characters of the prefix itself.
+        if (!complete) {
+            addSplits(boundaries, prefix, targetRanges, entries.get(entries.size() - 1));
+        }
+
+        List<Range> ranges = new ArrayList<>(boundaries.size() + 1);
+        String after = null;
+        for (String last : boundaries) {
+            ranges.add(new Range(prefix, after, last));
+            after = last;
+        }
+        ranges.add(new Range(prefix, after, null));
+        return ranges;
+    }
+
+    /**
+     * Adds up to splits - 1 boundaries of the form prefix + c that come after
+     * lowerBound, in key order.
+     */
+    private static void addSplits(List<String> boundaries, String prefix, int splits, String lowerBound) {
+        splits = Math.min(splits, BOUNDARY_CHARACTERS.length());
+        for (int i = 1; i < splits; i++) {
+            String boundary = prefix + BOUNDARY_CHARACTERS.charAt(i * BOUNDARY_CHARACTERS.length() / splits);
+            if (lowerBound == null || compareKeys(boundary, lowerBound) > 0) {
+                boundaries.add(boundary);
+            }
+        }
+    }
+
+    /**
+     * Compares keys in the order Amazon S3 lists them, which is the order of their
+     * UTF-8 bytes, or equivalently of their code points.
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * A page of objects, the end of a range (no objects), or an error.
+     */
+    private static final class Page {
+        private static final Page END = new Page(null, null);
+
+        private final List<S3Object> objects;
+        private final RuntimeException error;
+
+        private Page(List<S3Object> objects, RuntimeException error) {
+            this.objects = objects;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The keys under a prefix that come after {@code after}, up to and including
+     * {@code last}. A null bound means the start or end of the prefix.
+     */
+    static final class Range {
+        private final String prefix;
+        private final String after;
+        private final String last;
+        private final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(PAGES_AHEAD + 1);
+
+        private Range(String prefix, String after, String last) {
+            this.prefix = prefix;
+            this.after = after;
+            this.last = last;
+        }
+
+        private void list(S3Client s3, String bucketName) {
+            try {
+                for (ListObjectsV2Response response : s3.listObjectsV2Paginator(b -> b
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .startAfter(after))) {
+                    List<S3Object> objects = response.contents();
+                    int end = objects.size();
+                    if (last != null) {
+                        while (end > 0 && compareKeys(objects.get(end - 1).key(), last) > 0) {
+                            end--;
+                        }
+                    }
+                    if (end > 0) {
+                        pages.put(new Page(objects.subList(0, end), null));
+                    }
+                    if (end < objects.size()) {
+                        break;
+                    }
+                }
+                pages.put(Page.END);
+            } catch (InterruptedException e) {
+                // The stream was closed.
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                pages.clear();
+                pages.offer(new Page(null, e));
+            }
+        }
+
+        private Page take() {
+            try {
+                return pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while listing", e);
+            }
+        }
+    }
+}
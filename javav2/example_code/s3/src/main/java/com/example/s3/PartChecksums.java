@@ -0,0 +1,129 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes the SHA-256 and CRC32C checksums that Amazon S3 stores for each part of
+ * a multipart upload, and the composite checksum of the whole object.
+ * <p>
+ * The composite checksum is the checksum of the concatenated part checksums, in
+ * part order. {@link Composite} builds it while parts finish in any order, so it
+ * is ready as soon as the last part is done.
+ */
+public final class PartChecksums {
+    // Parts can be up to 5 GiB, which is more than one mapping can hold.
+    private static final long MAX_MAPPING = 256L * 1024 * 1024;
+
+    private PartChecksums() {
+    }
+
+    /**
+     * Returns the checksum of the remaining bytes of a buffer, without changing its position.
+     */
+    public static byte[] checksum(ChecksumAlgorithm algorithm, ByteBuffer data) {
+        Hasher hasher = new Hasher(algorithm);
+        hasher.update(data.duplicate());
+        return hasher.finish();
+    }
+
+    /**
+     * Returns the checksum of a range of a file, reading it through memory-mapped slices.
+     */
+    public static byte[] checksum(ChecksumAlgorithm algorithm, FileChannel channel, long offset, long length)
+        throws IOException {
+        Hasher hasher = new Hasher(algorithm);
+        for (long position = offset; position < offset + length; position += MAX_MAPPING) {
+            long size = Math.min(MAX_MAPPING, offset + length - position);
+            hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+        }
+        return hasher.finish();
+    }
+
+    public static String toBase64(byte[] checksum) {
+        return Base64.getEncoder().encodeToString(checksum);
+    }
+
+    /**
+     * Assembles the composite checksum of an object from its part checksums.
+     */
+    public static final class Composite {
+        private final Hasher hasher;
+        private final byte[][] parts;
+        private int nextPart;
+
+        public Composite(ChecksumAlgorithm algorithm, int partCount) {
+            this.hasher = new Hasher(algorithm);
+            this.parts = new byte[partCount][];
+        }
+
+        /**
+         * Records the checksum of a part, numbered from 1. Checksums are added to the
+         * composite as soon as every earlier part has been recorded.
+         */
+        public synchronized void add(int partNumber, byte[] checksum) {
+            parts[partNumber - 1] = checksum;
+            while (nextPart < parts.length && parts[nextPart] != null) {
+                hasher.update(ByteBuffer.wrap(parts[nextPart]));
+                parts[nextPart] = null;
+                nextPart++;
+            }
+        }
+
+        /**
+         * Returns the Base64-encoded composite checksum, once every part has been recorded.
+         */
+        public synchronized String value() {
+            if (nextPart < parts.length) {
+                throw new IllegalStateException("Part " + (nextPart + 1) + " has no checksum yet");
+            }
+            return toBase64(hasher.finish());
+        }
+    }
+
+    private static final class Hasher {
+        private final MessageDigest sha256;
+        private final CRC32C crc32c;
+
+        private Hasher(ChecksumAlgorithm algorithm) {
+            if (algorithm == ChecksumAlgorithm.SHA256) {
+                try {
+                    sha256 = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+                crc32c = null;
+            } else if (algorithm == ChecksumAlgorithm.CRC32_C) {
+                sha256 = null;
+                crc32c = new CRC32C();
+            } else {
+                throw new IllegalArgumentException("Unsupported checksum algorithm: " + algorithm);
+            }
+        }
+
+        private void update(ByteBuffer data) {
+            if (sha256 != null) {
+                sha256.update(data);
+            } else {
+                crc32c.update(data);
+            }
+        }
+
+        private byte[] finish() {
+            if (sha256 != null) {
+                return sha256.digest();
+            }
+            return ByteBuffer.allocate(4).putInt((int) crc32c.getValue()).array();
+        }
+    }
+}
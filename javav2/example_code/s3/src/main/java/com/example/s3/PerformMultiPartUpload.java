@@ -27,6 +27,7 @@ import java.io.RandomAccessFile;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
@@ -49,6 +50,7 @@ public class PerformMultiPartUpload {
         performMultiPartUpload.doMultipartUploadWithTransferManager();
         performMultiPartUpload.doMultipartUploadWithS3AsyncClient();
         performMultiPartUpload.doMultipartUploadWithS3Client();
+        performMultiPartUpload.doParallelMultipartUploadWithS3Client();
     }
 
     /**
@@ -201,6 +203,45 @@ public class PerformMultiPartUpload {
     }
     // snippet-end:[s3.java2.performMultiPartUpload.s3AsyncClient]
 
+    /**
+     * Uploads a file to Amazon S3 using the S3Client, sending several 8 MiB parts at the same time.
+     * <p>
+     * Progress is saved next to the file, so running the upload again after a failure sends only
+     * the parts that are missing.
+     *
+     * @param filePath the path to the file to be uploaded
+     */
+    public void parallelMultipartUploadWithS3Client(String filePath) {
+        parallelMultipartUploadWithS3Client(filePath, Paths.get(filePath + ".upload"));
+    }
+
+    /**
+     * Uploads a file to Amazon S3 using the S3Client, sending several 8 MiB parts at the same time,
+     * and saves its progress in the given checkpoint file.
+     *
+     * @param filePath   the path to the file to be uploaded
+     * @param checkpoint the file that records the parts already uploaded
+     */
+    public void parallelMultipartUploadWithS3Client(String filePath, Path checkpoint) {
+        ParallelMultipartUploader uploader = new ParallelMultipartUploader(s3Client, 8 * 1024 * 1024, 8);
+        try {
+            uploader.upload(Paths.get(filePath), bucketName, key, checkpoint);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private void doParallelMultipartUploadWithS3Client() {
+        createBucket();
+        try {
+            parallelMultipartUploadWithS3Client(filePath);
+        } catch (SdkException e) {
+            logger.error(e.getMessage());
+        } finally {
+            deleteResources();
+        }
+    }
+
     private void doMultipartUploadWithS3Client() {
         createBucket();
         try {
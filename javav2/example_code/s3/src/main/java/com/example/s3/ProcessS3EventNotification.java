@@ -5,7 +5,6 @@ package com.example.s3;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.eventnotifications.s3.model.S3EventNotification;
 import software.amazon.awssdk.services.cloudformation.CloudFormationAsyncClient;
 import software.amazon.awssdk.services.cloudformation.model.Capability;
 import software.amazon.awssdk.services.cloudformation.model.CloudFormationException;
@@ -15,11 +14,8 @@ import software.amazon.awssdk.services.s3.model.Bucket;
 import software.amazon.awssdk.services.s3.model.Event;
 import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
 import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
 import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
-import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.io.IOException;
@@ -29,9 +25,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.HashSet;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 public class ProcessS3EventNotification {
     static final CloudFormationAsyncClient cfClient = CloudFormationAsyncClient.create();
@@ -39,6 +33,9 @@ public class ProcessS3EventNotification {
     static final S3AsyncClient s3Client = S3AsyncClient.create();
     static final S3TransferManager transferManager = S3TransferManager.create();
     static final String STACK_NAME = "direct-target";
+    static final int RECEIVERS = 4;
+    static final int HANDLER_THREADS = 8;
+    static final Duration QUIET_PERIOD = Duration.ofSeconds(10);
     private static final Logger logger = LoggerFactory.getLogger(ProcessS3EventNotification.class);
 
     public static void main(String[] args) {
@@ -53,7 +50,8 @@ public class ProcessS3EventNotification {
 // snippet-start:[s3.java2.process_s3_event_notifications]
     /**
      * This method receives S3 event notifications by using an SqsAsyncClient.
-     * After the client receives the messages it deserializes the JSON payload and logs them. It uses
+     * An S3EventConsumer long-polls the queue with several receivers, deserializes the JSON payloads and logs them
+     * on a pool of handler threads, and deletes the handled messages in batches. It uses
      * the S3EventNotification class (part of the S3 event notification API for Java) to deserialize
      * the JSON payload and access the messages in an object-oriented way.
      *
@@ -86,63 +84,22 @@ public class ProcessS3EventNotification {
                             .bucket(bucketName)
             ).join();
 
-            triggerS3EventNotifications(bucketName);
-            // Wait for event notifications to propagate.
-            Thread.sleep(Duration.ofSeconds(5).toMillis());
-
-            boolean didReceiveMessages = true;
-            while (didReceiveMessages) {
-                // Display the number of messages that are available in the queue.
-                sqsClient.getQueueAttributes(b -> b
-                                .queueUrl(queueUrl)
-                                .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)
-                        ).thenAccept(attributeResponse ->
-                                logger.info("Approximate number of messages in the queue: {}",
-                                        attributeResponse.attributes().get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)))
-                        .join();
-
-                // Receive the messages.
-                ReceiveMessageResponse response = sqsClient.receiveMessage(b -> b
-                        .queueUrl(queueUrl)
-                ).get();
-                logger.info("Count of received messages: {}", response.messages().size());
-                didReceiveMessages = !response.messages().isEmpty();
-
-                // Create a collection to hold the received message for deletion
-                // after we log the messages.
-                HashSet<DeleteMessageBatchRequestEntry> messagesToDelete = new HashSet<>();
-                // Process each message.
-                response.messages().forEach(message -> {
-                    logger.info("Message id: {}", message.messageId());
-                    // Deserialize JSON message body to a S3EventNotification object
-                    // to access messages in an object-oriented way.
-                    S3EventNotification event = S3EventNotification.fromJson(message.body());
-
-                    // Log the S3 event notification record details.
-                    if (event.getRecords() != null) {
-                        event.getRecords().forEach(record -> {
-                            String eventName = record.getEventName();
-                            String key = record.getS3().getObject().getKey();
-                            logger.info(record.toString());
-                            logger.info("Event name is {} and key is {}", eventName, key);
-                        });
-                    }
-                    // Add logged messages to collection for batch deletion.
-                    messagesToDelete.add(DeleteMessageBatchRequestEntry.builder()
-                            .id(message.messageId())
-                            .receiptHandle(message.receiptHandle())
-                            .build());
-                });
-                // Delete messages.
-                if (!messagesToDelete.isEmpty()) {
-                    sqsClient.deleteMessageBatch(DeleteMessageBatchRequest.builder()
-                            .queueUrl(queueUrl)
-                            .entries(messagesToDelete)
-                            .build()
-                    ).join();
-                }
-            } // End of while block.
-        } catch (InterruptedException | ExecutionException e) {
+            // Start consuming before the events are triggered, so that the reported lag covers delivery only.
+            try (S3EventConsumer consumer = new S3EventConsumer(sqsClient, queueUrl, RECEIVERS, HANDLER_THREADS,
+                    record -> {
+                        String eventName = record.getEventName();
+                        String key = record.getS3().getObject().getKey();
+                        logger.info(record.toString());
+                        logger.info("Event name is {} and key is {}", eventName, key);
+                    })) {
+                consumer.start();
+                triggerS3EventNotifications(bucketName);
+
+                // Handle messages until the queue has been quiet for a while.
+                consumer.awaitQuiet(QUIET_PERIOD);
+                logger.info("Processed S3 events: {}", consumer.metrics());
+            }
+        } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
     }
@@ -10,11 +10,7 @@ package com.example.s3;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteBucketRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.model.S3Object;
 // snippet-end:[s3.java2.s3_bucket_ops.delete_bucket.import]
 // snippet-end:[s3.java2.bucket_deletion.import]
 
@@ -54,6 +50,9 @@ public class S3BucketDeletion {
 
     /**
      * Deletes all objects in the specified S3 bucket and then deletes the bucket.
+     * <p>
+     * Objects, including every version and delete marker, are deleted in batches of 1,000 with
+     * several DeleteObjects requests in flight, while the bucket is still being listed.
      *
      * @param s3     The S3Client instance to use for the S3 operations.
      * @param bucket The name of the S3 bucket to delete.
@@ -62,21 +61,13 @@ public class S3BucketDeletion {
     public static void deleteObjectsInBucket(S3Client s3, String bucket) {
         try {
             // To delete a bucket, all the objects in the bucket must be deleted first.
-            ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
-                .bucket(bucket)
-                .build();
-            ListObjectsV2Response listObjectsV2Response;
+            BulkDeleter.Result result = new BulkDeleter(s3, 8).deleteAllVersions(bucket, "");
+            System.out.println(result);
+            if (result.failed() > 0) {
+                System.err.println("The bucket is not empty, so it was not deleted.");
+                return;
+            }
 
-            do {
-                listObjectsV2Response = s3.listObjectsV2(listObjectsV2Request);
-                for (S3Object s3Object : listObjectsV2Response.contents()) {
-                    DeleteObjectRequest request = DeleteObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(s3Object.key())
-                        .build();
-                    s3.deleteObject(request);
-                }
-            } while (listObjectsV2Response.isTruncated());
             DeleteBucketRequest deleteBucketRequest = DeleteBucketRequest.builder().bucket(bucket).build();
             s3.deleteBucket(deleteBucketRequest);
 
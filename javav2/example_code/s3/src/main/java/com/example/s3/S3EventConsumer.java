@@ -0,0 +1,347 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.eventnotifications.s3.model.S3EventNotification;
+import software.amazon.awssdk.eventnotifications.s3.model.S3EventNotificationRecord;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Consumes Amazon S3 event notifications from an Amazon SQS queue.
+ * <p>
+ * Several receivers long-poll the queue at the same time. A receiver only hands
+ * messages off; the JSON is parsed and each record is passed to the handler on a
+ * fixed pool of handler threads. The number of messages that have been received
+ * but not yet handled is bounded, so a receiver stops polling while the handlers
+ * are behind. Messages whose records were all handled are deleted in batches of
+ * up to ten with DeleteMessageBatch; messages whose handler threw are left on the
+ * queue to be delivered again after the visibility timeout.
+ * <p>
+ * The consumer only uses the SqsAsyncClient interface, so it can run against a
+ * local SQS-compatible endpoint (by setting endpointOverride on the client
+ * builder) or an in-memory stand-in.
+ */
+public class S3EventConsumer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(S3EventConsumer.class);
+    private static final int MAX_MESSAGES = 10;
+    private static final int WAIT_TIME_SECONDS = 20;
+    private static final long DELETE_DELAY_MILLIS = 100;
+
+    private final SqsAsyncClient sqsClient;
+    private final String queueUrl;
+    private final Consumer<S3EventNotificationRecord> handler;
+    private final int receivers;
+    private final ExecutorService receiverThreads;
+    private final ExecutorService handlerThreads;
+    private final ScheduledExecutorService deleteTimer;
+    private final Semaphore unhandled;
+    private final AtomicReferenceArray<CompletableFuture<ReceiveMessageResponse>> pendingReceives;
+    private final List<DeleteMessageBatchRequestEntry> toDelete = new ArrayList<>();
+    private final List<CompletableFuture<?>> pendingDeletes = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder recordsHandled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder lagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong lastReceivedNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param sqsClient      the client used to receive and delete messages
+     * @param queueUrl       the queue that receives the S3 event notifications
+     * @param receivers      the number of long polls kept open at the same time
+     * @param handlerThreads the number of threads that parse messages and run the handler
+     * @param handler        called once for each S3 event notification record
+     */
+    public S3EventConsumer(SqsAsyncClient sqsClient, String queueUrl, int receivers, int handlerThreads,
+                           Consumer<S3EventNotificationRecord> handler) {
+        if (receivers < 1 || handlerThreads < 1) {
+            throw new IllegalArgumentException("receivers and handlerThreads must be positive");
+        }
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+        this.handler = handler;
+        this.receivers = receivers;
+        this.receiverThreads = Executors.newFixedThreadPool(receivers, daemon("s3-event-receiver"));
+        this.handlerThreads = Executors.newFixedThreadPool(handlerThreads, daemon("s3-event-handler"));
+        this.deleteTimer = Executors.newSingleThreadScheduledExecutor(daemon("s3-event-delete"));
+        // Every receiver reserves a full batch before it polls, so all of them can poll at the same time,
+        // with enough messages left waiting for every handler thread to stay busy.
+        this.unhandled = new Semaphore(receivers * MAX_MESSAGES + handlerThreads * 2);
+        this.pendingReceives = new AtomicReferenceArray<>(receivers);
+    }
+
+    /**
+     * Starts the receivers. Messages are handled until {@link #close()} is called.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < receivers; i++) {
+            int receiver = i;
+            receiverThreads.execute(() -> receive(receiver));
+        }
+    }
+
+    /**
+     * Waits until no message has been received for the quiet period and every
+     * received message has been handled and deleted.
+     */
+    public void awaitQuiet(Duration quietPeriod) throws InterruptedException {
+        long quietNanos = quietPeriod.toNanos();
+        while (inFlight.get() > 0 || System.nanoTime() - lastReceivedNanos.get() < quietNanos) {
+            Thread.sleep(50);
+        }
+        flushDeletes().join();
+    }
+
+    /**
+     * Stops receiving, waits for the handlers to finish the messages already
+     * received, and deletes the messages that were handled. If the calling thread
+     * is interrupted, it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (int i = 0; i < receivers; i++) {
+            CompletableFuture<ReceiveMessageResponse> pending = pendingReceives.get(i);
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+        // Interrupts receivers that are waiting for handlers to catch up.
+        receiverThreads.shutdownNow();
+        try {
+            receiverThreads.awaitTermination(WAIT_TIME_SECONDS + 5, TimeUnit.SECONDS);
+            handlerThreads.shutdown();
+            handlerThreads.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // Messages that were already handled are still deleted below.
+            handlerThreads.shutdown();
+            Thread.currentThread().interrupt();
+        }
+        flushDeletes().join();
+        deleteTimer.shutdownNow();
+        logger.info("S3 event consumer stopped: {}", metrics());
+    }
+
+    public Metrics metrics() {
+        long records = recordsHandled.sum();
+        return new Metrics(received.sum(), records, failed.sum(), deleted.sum(),
+                records == 0 ? 0 : lagMillis.sum() / records, maxLagMillis.get());
+    }
+
+    private void receive(int receiver) {
+        while (running) {
+            CompletableFuture<ReceiveMessageResponse> pending = null;
+            try {
+                unhandled.acquire(MAX_MESSAGES);
+                pending = sqsClient.receiveMessage(b -> b
+                        .queueUrl(queueUrl)
+                        .maxNumberOfMessages(MAX_MESSAGES)
+                        .waitTimeSeconds(WAIT_TIME_SECONDS));
+                pendingReceives.set(receiver, pending);
+                if (!running) {
+                    pending.cancel(false);
+                }
+
+                List<Message> messages = pending.join().messages();
+                unhandled.release(MAX_MESSAGES - messages.size());
+                if (!messages.isEmpty()) {
+                    received.add(messages.size());
+                    inFlight.addAndGet(messages.size());
+                    lastReceivedNanos.set(System.nanoTime());
+                }
+                for (Message message : messages) {
+                    handlerThreads.execute(() -> handle(message));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                unhandled.release(MAX_MESSAGES);
+                if (!running) {
+                    return;
+                }
+                logger.warn("Receive from {} failed, retrying: {}", queueUrl, e.getMessage());
+                pause();
+            } finally {
+                pendingReceives.compareAndSet(receiver, pending, null);
+            }
+        }
+    }
+
+    private void handle(Message message) {
+        try {
+            S3EventNotification notification = S3EventNotification.fromJson(message.body());
+            // Test events that S3 sends when notifications are configured have no records.
+            if (notification.getRecords() != null) {
+                Instant now = Instant.now();
+                for (S3EventNotificationRecord record : notification.getRecords()) {
+                    handler.accept(record);
+                    recordsHandled.increment();
+                    if (record.getEventTime() != null) {
+                        long lag = Math.max(0, Duration.between(record.getEventTime(), now).toMillis());
+                        lagMillis.add(lag);
+                        maxLagMillis.accumulateAndGet(lag, Math::max);
+                    }
+                }
+            }
+            acknowledge(message);
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.error("Failed to handle message {}; it will be delivered again", message.messageId(), e);
+            inFlight.decrementAndGet();
+        } finally {
+            unhandled.release();
+        }
+    }
+
+    private void acknowledge(Message message) {
+        synchronized (toDelete) {
+            toDelete.add(DeleteMessageBatchRequestEntry.builder()
+                    .id(message.messageId())
+                    .receiptHandle(message.receiptHandle())
+                    .build());
+            if (toDelete.size() == MAX_MESSAGES) {
+                sendDeletes();
+            } else if (toDelete.size() == 1) {
+                deleteTimer.schedule(this::flushDeletes, DELETE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> flushDeletes() {
+        synchronized (toDelete) {
+            if (!toDelete.isEmpty()) {
+                sendDeletes();
+            }
+            return CompletableFuture.allOf(pendingDeletes.toArray(new CompletableFuture[0]));
+        }
+    }
+
+    // Called while holding the toDelete lock.
+    private void sendDeletes() {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(toDelete);
+        toDelete.clear();
+        CompletableFuture<DeleteMessageBatchResponse> delete = sqsClient.deleteMessageBatch(b -> b
+                .queueUrl(queueUrl)
+                .entries(entries));
+        pendingDeletes.add(delete);
+        delete.whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                logger.error("Failed to delete {} messages; they will be delivered again", entries.size(), cause);
+            } else {
+                deleted.add(response.successful().size());
+                for (BatchResultErrorEntry failure : response.failed()) {
+                    logger.error("Failed to delete message {}: {}", failure.id(), failure.message());
+                }
+            }
+            inFlight.addAndGet(-entries.size());
+            synchronized (toDelete) {
+                pendingDeletes.remove(delete);
+            }
+        });
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Counts of messages and records, and the time from each S3 event to the
+     * moment its record was handled.
+     */
+    public static final class Metrics {
+        private final long messagesReceived;
+        private final long recordsHandled;
+        private final long messagesFailed;
+        private final long messagesDeleted;
+        private final long averageLagMillis;
+        private final long maxLagMillis;
+
+        Metrics(long messagesReceived, long recordsHandled, long messagesFailed, long messagesDeleted,
+                long averageLagMillis, long maxLagMillis) {
+            this.messagesReceived = messagesReceived;
+            this.recordsHandled = recordsHandled;
+            this.messagesFailed = messagesFailed;
+            this.messagesDeleted = messagesDeleted;
+            this.averageLagMillis = averageLagMillis;
+            this.maxLagMillis = maxLagMillis;
+        }
+
+        public long messagesReceived() {
+            return messagesReceived;
+        }
+
+        public long recordsHandled() {
+            return recordsHandled;
+        }
+
+        public long messagesFailed() {
+            return messagesFailed;
+        }
+
+        public long messagesDeleted() {
+            return messagesDeleted;
+        }
+
+        public long averageLagMillis() {
+            return averageLagMillis;
+        }
+
+        public long maxLagMillis() {
+            return maxLagMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d messages received, %d records handled, %d messages failed, %d messages deleted, "
+                    + "event lag avg %d ms, max %d ms", messagesReceived, recordsHandled, messagesFailed,
+                    messagesDeleted, averageLagMillis, maxLagMillis);
+        }
+    }
+}
@@ -3,23 +3,17 @@
 
 package com.example.s3;
 
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.Duration;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Arrays;
 
 /**
  * Before running this Java V2 code example, set up your development
@@ -59,6 +53,9 @@ public class S3ZipExample {
 
     /**
      * Creates a ZIP file containing the specified image keys from an S3 bucket and uploads it to S3.
+     * <p>
+     * The images are fetched a few at a time while the archive is compressed, and the archive is
+     * uploaded in parts as it is written, so neither the images nor the archive are held in memory.
      *
      * @param s3 the S3Client instance to use for interacting with S3
      * @param bucketName the name of the S3 bucket to use
@@ -67,50 +64,17 @@ public class S3ZipExample {
     public static void createZIPFile(S3Client s3, String bucketName, String[] imageKeys) {
         String uuid = java.util.UUID.randomUUID().toString();
         String zipName = uuid + ".zip";
-        // Create a ByteArrayOutputStream to write the ZIP file to.
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
 
         try {
-            for (String imageKey : imageKeys) {
-                GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(imageKey)
-                    .build();
-                ResponseBytes<GetObjectResponse> responseBytes = s3.getObjectAsBytes(getObjectRequest);
-
-                // Create a ZipEntry for the object and add it to the ZipOutputStream.
-                ZipEntry zipEntry = new ZipEntry(imageKey);
-                zipOutputStream.putNextEntry(zipEntry);
-
-                // Write the data to the ZipOutputStream.
-                zipOutputStream.write(responseBytes.asByteArray(), 0, responseBytes.asByteArray().length);
-
-                // Close the ZipEntry.
-                zipOutputStream.closeEntry();
-            }
-
-            // Close the ZipOutputStream.
-            zipOutputStream.close();
-
-            // Upload the ZIP file to S3.
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(zipName)
-                .build();
-            s3.putObject(putObjectRequest, RequestBody.fromBytes(outputStream.toByteArray()));
+            StreamingZipArchiver archiver = new StreamingZipArchiver(s3);
+            long zipSize = archiver.archive(bucketName, Arrays.asList(imageKeys), bucketName, zipName);
+            System.out.println("Uploaded " + zipName + " (" + zipSize + " bytes)");
             String preSignUrl = signObjectToDownload(bucketName, zipName);
             System.out.println("The Presigned URL is " + preSignUrl);
 
         } catch (S3Exception | IOException e) {
             System.err.println(e.getMessage());
             e.printStackTrace();
-        } finally {
-            try {
-                outputStream.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -0,0 +1,190 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds a ZIP archive of Amazon S3 objects and uploads it to Amazon S3 while it
+ * is being written.
+ * <p>
+ * The next few source objects are fetched concurrently while the current one is
+ * compressed. Objects up to a size limit are read into memory by the fetching
+ * thread; larger objects are only requested when their turn comes, and streamed
+ * from the response, so no connection is held open by an object that is waiting.
+ * The archive is written to a {@link MultipartUploadOutputStream}, so memory use
+ * is bounded by the fetch window and the part buffers, not by the archive size.
+ * With the defaults this is under 100 MB.
+ */
+public class StreamingZipArchiver {
+    private final S3Client s3;
+    private final int prefetchCount;
+    private final int maxBufferedObjectSize;
+    private final int partSize;
+    private final int partsInFlight;
+
+    /**
+     * Creates an archiver that fetches four objects ahead, buffers objects up to
+     * 8 MiB, and uploads 8 MiB parts two at a time.
+     */
+    public StreamingZipArchiver(S3Client s3) {
+        this(s3, 4, 8 * 1024 * 1024, 8 * 1024 * 1024, 2);
+    }
+
+    /**
+     * @param s3                    the client used to read the objects and upload the archive
+     * @param prefetchCount         the number of objects fetched ahead of the one being compressed
+     * @param maxBufferedObjectSize the largest object that is read into memory ahead of time
+     * @param partSize              the size of each uploaded part
+     * @param partsInFlight         the maximum number of parts uploaded at the same time
+     */
+    public StreamingZipArchiver(S3Client s3, int prefetchCount, int maxBufferedObjectSize, int partSize,
+                                int partsInFlight) {
+        this.s3 = s3;
+        this.prefetchCount = prefetchCount;
+        this.maxBufferedObjectSize = maxBufferedObjectSize;
+        this.partSize = partSize;
+        this.partsInFlight = partsInFlight;
+    }
+
+    /**
+     * Writes the objects to a ZIP archive in the destination bucket. Each entry is
+     * named after the key of its object.
+     *
+     * @return the number of bytes in the archive
+     */
+    public long archive(String sourceBucket, List<String> keys, String destinationBucket, String zipKey)
+        throws IOException {
+        ExecutorService fetcher = Executors.newFixedThreadPool(Math.max(1, prefetchCount), runnable -> {
+            Thread thread = new Thread(runnable, "zip-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<CompletableFuture<InputStream>> fetches = new ArrayDeque<>();
+        MultipartUploadOutputStream upload =
+            new MultipartUploadOutputStream(s3, destinationBucket, zipKey, partSize, partsInFlight);
+
+        try {
+            int next = 0;
+            byte[] copyBuffer = new byte[64 * 1024];
+            ZipOutputStream zip = new ZipOutputStream(upload);
+            for (String key : keys) {
+                while (next < keys.size() && fetches.size() <= prefetchCount) {
+                    String nextKey = keys.get(next++);
+                    fetches.add(CompletableFuture.supplyAsync(() -> fetch(sourceBucket, nextKey), fetcher));
+                }
+
+                try (InputStream object = fetches.poll().join()) {
+                    zip.putNextEntry(new ZipEntry(key));
+                    int read;
+                    while ((read = object.read(copyBuffer)) != -1) {
+                        zip.write(copyBuffer, 0, read);
+                    }
+                    zip.closeEntry();
+                }
+            }
+
+            // Closing the ZIP stream writes the central directory and completes the upload.
+            zip.close();
+            return upload.bytesWritten();
+
+        } catch (CompletionException e) {
+            upload.abort();
+            // Rethrow what the fetch threw, such as an S3Exception for a missing key, so callers can handle it.
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
+        } finally {
+            fetcher.shutdownNow();
+            for (CompletableFuture<InputStream> fetch : fetches) {
+                fetch.thenAccept(StreamingZipArchiver::closeQuietly);
+            }
+        }
+    }
+
+    private InputStream fetch(String bucketName, String key) {
+        HeadObjectResponse head = s3.headObject(b -> b.bucket(bucketName).key(key));
+        Long size = head.contentLength();
+        if (size == null || size > maxBufferedObjectSize) {
+            // The object that was sized is the one read later, even if the key is overwritten meanwhile.
+            return new LazyInputStream(() -> s3.getObject(b -> b.bucket(bucketName).key(key).ifMatch(head.eTag())));
+        }
+
+        try (ResponseInputStream<GetObjectResponse> response =
+                 s3.getObject(b -> b.bucket(bucketName).key(key).ifMatch(head.eTag()))) {
+            return new ByteArrayInputStream(response.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // The archive has already failed; there is nothing more to report.
+        }
+    }
+
+    /**
+     * A stream that is only opened when it is first read.
+     */
+    private static final class LazyInputStream extends InputStream {
+        private final Supplier<InputStream> opener;
+        private InputStream stream;
+
+        private LazyInputStream(Supplier<InputStream> opener) {
+            this.opener = opener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return open().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return open().read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+
+        private InputStream open() {
+            if (stream == null) {
+                stream = opener.get();
+            }
+            return stream;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3.async;
+
+import com.example.s3.PartChecksums;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads an Amazon S3 object with several GetObject requests at the same time,
+ * each for one piece of the object, and writes every piece at its offset in the
+ * destination file through a positional FileChannel.
+ * <p>
+ * Objects that were uploaded in parts with SHA-256 or CRC32C checksums are
+ * downloaded one part at a time, and each part is checked against the checksum
+ * that Amazon S3 returns for it. Other objects are downloaded in byte ranges of a
+ * fixed size; if Amazon S3 has a whole-object checksum for them, the finished
+ * file is checked against it. Every request sends If-Match with the ETag from the
+ * first HeadObject call, so the pieces cannot come from different versions.
+ * <p>
+ * Each finished piece is written to disk and then recorded in a manifest next to
+ * the destination file. Downloading again to the same destination after a
+ * failure only requests the missing pieces. The manifest is deleted once the
+ * download is complete, and also when the finished file does not match the
+ * whole-object checksum, so that the next download starts over.
+ */
+public class RangedDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(RangedDownloader.class);
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    private final S3AsyncClient s3AsyncClient;
+    private final long rangeSize;
+    private final int rangesInFlight;
+
+    /**
+     * @param s3AsyncClient  the client used to download; its HTTP client needs at
+     *                       least {@code rangesInFlight} connections
+     * @param rangeSize      the size of each byte range, for objects that are not
+     *                       downloaded by part
+     * @param rangesInFlight the number of GetObject requests in flight
+     */
+    public RangedDownloader(S3AsyncClient s3AsyncClient, long rangeSize, int rangesInFlight) {
+        if (rangeSize < 1 || rangesInFlight < 1) {
+            throw new IllegalArgumentException("rangeSize and rangesInFlight must be positive");
+        }
+        this.s3AsyncClient = s3AsyncClient;
+        this.rangeSize = rangeSize;
+        this.rangesInFlight = rangesInFlight;
+    }
+
+    /**
+     * Returns the manifest that records the progress of a download to a file.
+     */
+    public static Path manifestFor(Path destination) {
+        return destination.resolveSibling(destination.getFileName() + MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Downloads an object to a file, resuming an earlier download to the same file
+     * if its manifest is still there.
+     *
+     * @return a future that completes with the size of the object
+     */
+    public CompletableFuture<Long> download(String bucketName, String key, Path destination) {
+        return s3AsyncClient.headObject(b -> b
+                        .bucket(bucketName)
+                        .key(key)
+                        .checksumMode(ChecksumMode.ENABLED))
+                .thenCompose(head -> {
+                    Download download;
+                    try {
+                        download = new Download(bucketName, key, destination, head);
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    return download.run();
+                });
+    }
+
+    /**
+     * The state of one download: the plan of pieces, the open file, and the manifest.
+     */
+    private final class Download {
+        private final String bucketName;
+        private final String key;
+        private final Path destination;
+        private final Path manifest;
+        private final HeadObjectResponse head;
+        private final ChecksumAlgorithm algorithm;
+        private final boolean byPart;
+        private final int pieceCount;
+        private final FileChannel channel;
+        private final Set<Integer> done = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger nextPiece = new AtomicInteger();
+
+        private Download(String bucketName, String key, Path destination, HeadObjectResponse head)
+                throws IOException {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.destination = destination;
+            this.manifest = manifestFor(destination);
+            this.head = head;
+
+            if (head.checksumSHA256() != null) {
+                algorithm = ChecksumAlgorithm.SHA256;
+            } else if (head.checksumCRC32C() != null) {
+                algorithm = ChecksumAlgorithm.CRC32_C;
+            } else {
+                algorithm = null;
+            }
+
+            // The ETag of an object uploaded in parts ends with "-" and the number of parts.
+            String eTag = head.eTag();
+            int dash = eTag.lastIndexOf('-');
+            int partCount = dash < 0 ? 0 : Integer.parseInt(eTag.substring(dash + 1, eTag.length() - 1));
+            byPart = partCount > 0 && algorithm != null;
+            pieceCount = byPart ? partCount : (int) ((head.contentLength() + rangeSize - 1) / rangeSize);
+
+            String fingerprint = String.join(" ", bucketName, key, eTag, Long.toString(head.contentLength()),
+                    byPart ? "parts" : Long.toString(rangeSize));
+            boolean resuming = readManifest(fingerprint);
+            channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (!resuming) {
+                channel.truncate(0);
+                Files.writeString(manifest, fingerprint + "\n", StandardCharsets.UTF_8);
+            } else {
+                logger.info("Resuming download of {} with {} of {} pieces already done", key, done.size(), pieceCount);
+            }
+        }
+
+        private CompletableFuture<Long> run() {
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(rangesInFlight, pieceCount)];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = nextPiece();
+            }
+
+            return CompletableFuture.allOf(workers)
+                    .thenApply(v -> {
+                        try {
+                            channel.truncate(head.contentLength());
+                            if (!byPart) {
+                                verifyWholeObject();
+                            }
+                            channel.close();
+                            Files.deleteIfExists(manifest);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return head.contentLength();
+                    })
+                    .whenComplete((size, error) -> {
+                        if (error != null) {
+                            // The manifest is kept so that the pieces already written are not downloaded again.
+                            closeQuietly();
+                        }
+                    });
+        }
+
+        /**
+         * Downloads pieces one after another until none are left.
+         */
+        private CompletableFuture<Void> nextPiece() {
+            int piece;
+            do {
+                piece = nextPiece.getAndIncrement();
+            } while (piece < pieceCount && done.contains(piece));
+
+            if (piece >= pieceCount) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return downloadPiece(piece).thenCompose(v -> nextPiece());
+        }
+
+        private CompletableFuture<Void> downloadPiece(int piece) {
+            long rangeStart = piece * rangeSize;
+            CompletableFuture<ResponsePublisher<GetObjectResponse>> get = s3AsyncClient.getObject(b -> {
+                b.bucket(bucketName).key(key).ifMatch(head.eTag());
+                if (byPart) {
+                    b.partNumber(piece + 1).checksumMode(ChecksumMode.ENABLED);
+                } else {
+                    long rangeEnd = Math.min(rangeStart + rangeSize, head.contentLength()) - 1;
+                    b.range("bytes=" + rangeStart + "-" + rangeEnd);
+                }
+            }, AsyncResponseTransformer.toPublisher());
+
+            return get.thenCompose(publisher -> {
+                GetObjectResponse response = publisher.response();
+                long offset = byPart ? contentRangeStart(response.contentRange()) : rangeStart;
+                long[] position = {offset};
+                return publisher.subscribe(buffer -> {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            position[0] += channel.write(buffer, position[0]);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).thenRun(() -> finishPiece(piece, response, offset, position[0] - offset));
+            });
+        }
+
+        private void finishPiece(int piece, GetObjectResponse response, long offset, long length) {
+            try {
+                if (length != response.contentLength()) {
+                    throw new IllegalStateException("Piece " + piece + " of " + key + " is " + length
+                            + " bytes instead of " + response.contentLength());
+                }
+                if (byPart) {
+                    String expected = algorithm == ChecksumAlgorithm.SHA256
+                            ? response.checksumSHA256()
+                            : response.checksumCRC32C();
+                    String actual = PartChecksums.toBase64(PartChecksums.checksum(algorithm, channel, offset, length));
+                    if (!actual.equals(expected)) {
+                        throw new IllegalStateException("Part " + (piece + 1) + " of " + key + " has " + algorithm
+                                + " checksum " + actual + " but Amazon S3 has " + expected);
+                    }
+                }
+
+                // Only record a piece once its bytes are on disk.
+                channel.force(false);
+                synchronized (this) {
+                    Files.writeString(manifest, piece + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                }
+                done.add(piece);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void verifyWholeObject() throws IOException {
+            String expected = algorithm == ChecksumAlgorithm.SHA256 ? head.checksumSHA256()
+                    : algorithm == ChecksumAlgorithm.CRC32_C ? head.checksumCRC32C() : null;
+            // Composite checksums of objects uploaded in parts cannot be checked from byte ranges.
+            if (expected == null || expected.contains("-")) {
+                return;
+            }
+            String actual = PartChecksums.toBase64(
+                    PartChecksums.checksum(algorithm, channel, 0, head.contentLength()));
+            if (!actual.equals(expected)) {
+                // Every piece is already recorded as done, and a range cannot be checked on its own,
+                // so start the next download over instead of resuming with the corrupt bytes.
+                channel.truncate(0);
+                Files.deleteIfExists(manifest);
+                throw new IllegalStateException(key + " has " + algorithm + " checksum " + actual
+                        + " but Amazon S3 has " + expected);
+            }
+        }
+
+        private boolean readManifest(String fingerprint) throws IOException {
+            if (!Files.exists(manifest) || !Files.exists(destination)) {
+                return false;
+            }
+            String contents = Files.readString(manifest, StandardCharsets.UTF_8);
+            // A line cut short by a crash has no newline yet, and its piece is downloaded again.
+            List<String> lines = List.of(contents.substring(0, contents.lastIndexOf('\n') + 1).split("\n"));
+            if (lines.isEmpty() || !lines.get(0).equals(fingerprint)) {
+                // The object or the settings have changed, so the pieces on disk cannot be reused.
+                return false;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                done.add(Integer.parseInt(line));
+            }
+            return true;
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close {}", destination, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the first byte of a Content-Range header such as "bytes 0-8388607/20971520".
+     */
+    static long contentRangeStart(String contentRange) {
+        int space = contentRange.indexOf(' ');
+        int dash = contentRange.indexOf('-', space);
+        return Long.parseLong(contentRange.substring(space + 1, dash));
+    }
+}
@@ -5,11 +5,9 @@ package com.example.s3.async;
 // snippet-start:[s3.java2.async_stream_ops.complete]
 
 // snippet-start:[s3.java2.async_stream_ops.import]
-import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import java.nio.file.Paths;
 import java.util.concurrent.CompletableFuture;
 // snippet-end:[s3.java2.async_stream_ops.import]
@@ -26,6 +24,10 @@ import java.util.concurrent.CompletableFuture;
  */
 
 public class S3AsyncStreamOps {
+    // Large objects are fetched as byte ranges (or parts) of this size, several at a time.
+    private static final long RANGE_SIZE = 16L * 1024 * 1024;
+    private static final int RANGES_IN_FLIGHT = 8;
+
     public static void main(String[] args) {
         final String usage = """
                 Usage:
@@ -48,20 +50,19 @@ public class S3AsyncStreamOps {
         Region region = Region.US_EAST_1;
         S3AsyncClient s3AsyncClient = S3AsyncClient.builder()
                 .region(region)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(RANGES_IN_FLIGHT))
                 .build();
 
-        GetObjectRequest objectRequest = GetObjectRequest.builder()
-                .bucket(bucketName)
-                .key(objectKey)
-                .build();
-
-        CompletableFuture<GetObjectResponse> futureGet = s3AsyncClient.getObject(objectRequest,
-                AsyncResponseTransformer.toFile(Paths.get(path)));
+        // Download the object over several connections. If the download is interrupted, running
+        // the example again with the same path only fetches the missing ranges.
+        RangedDownloader downloader = new RangedDownloader(s3AsyncClient, RANGE_SIZE, RANGES_IN_FLIGHT);
+        CompletableFuture<Long> futureGet = downloader.download(bucketName, objectKey, Paths.get(path));
 
-        futureGet.whenComplete((resp, err) -> {
+        futureGet.whenComplete((size, err) -> {
             try {
-                if (resp != null) {
-                    System.out.println("Object downloaded. Details: " + resp);
+                if (size != null) {
+                    System.out.println("Object downloaded. Size: " + size + " bytes");
                 } else {
                     err.printStackTrace();
                 }
@@ -29,10 +29,11 @@ import software.amazon.awssdk.services.s3.model.Stats;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 // snippet-end:[s3.java2.async.selectObjectContentMethod.import]
 
 /**
@@ -93,15 +94,15 @@ public class SelectObjectContentExample {
                 .build();
 
         EventStreamInfo eventStreamInfo = new EventStreamInfo();
-        // Call the selectObjectContent method with the request and a response handler.
-        // Supply an EventStreamInfo object to the response handler to gather records and information from the response.
-        s3AsyncClient.selectObjectContent(select, buildResponseHandler(eventStreamInfo)).join();
+        // Call the selectObjectContent method with the request and a response handler that reads the records row by row.
+        // Supply an EventStreamInfo object to the visitor to gather information from the response.
+        SelectRecordReader reader = SelectRecordReader.forJson(buildVisitor(eventStreamInfo));
+        CompletableFuture<Void> selected = s3AsyncClient.selectObjectContent(select, reader);
+        eventStreamInfo.addRecords(countRecords(reader).join());
+        selected.join();
 
         // Log out information gathered while processing the response stream.
-        long recordCount = eventStreamInfo.getRecords().stream().mapToInt(record ->
-                record.split("\n").length
-        ).sum();
-        logger.info("Total records {}: {}", fileType, recordCount);
+        logger.info("Total records {}: {}", fileType, eventStreamInfo.getRecordCount());
         logger.info("Visitor onRecords for fileType {} called {} times", fileType, eventStreamInfo.getCountOnRecordsCalled());
         logger.info("Visitor onStats for fileType {}, {}", fileType, eventStreamInfo.getStats());
         logger.info("Visitor onContinuations for fileType {}, {}", fileType, eventStreamInfo.getCountContinuationEvents());
@@ -110,12 +111,12 @@ public class SelectObjectContentExample {
 // snippet-end:[s3.java2.async.selectObjectContentMethod.json]
 
 // snippet-start:[s3.java2.async.selectObjectContentMethod.response-handler]
-    static SelectObjectContentResponseHandler buildResponseHandler(EventStreamInfo eventStreamInfo) {
-        // Use a Visitor to process the response stream. This visitor logs information and gathers details while processing.
-        final SelectObjectContentResponseHandler.Visitor visitor = SelectObjectContentResponseHandler.Visitor.builder()
+    static SelectObjectContentResponseHandler.Visitor buildVisitor(EventStreamInfo eventStreamInfo) {
+        // Use a Visitor to see every event of the response stream. This visitor logs information and gathers details
+        // while processing. The records themselves are read by SelectRecordReader.
+        return SelectObjectContentResponseHandler.Visitor.builder()
                 .onRecords(r -> {
                     logger.info("Record event received.");
-                    eventStreamInfo.addRecord(r.payload().asUtf8String());
                     eventStreamInfo.incrementOnRecordsCalled();
                 })
                 .onCont(ce -> {
@@ -135,17 +136,48 @@ public class SelectObjectContentExample {
                     eventStreamInfo.addStats(se.details());
                 })
                 .build();
+    }
 
-        // Build the SelectObjectContentResponseHandler with the visitor that processes the stream.
-        return SelectObjectContentResponseHandler.builder()
-                .subscriber(visitor).build();
+    // Count the rows published by a SelectRecordReader, requesting them in batches so that only a few
+    // Records events are held in memory at a time.
+    static CompletableFuture<Long> countRecords(Flow.Publisher<ByteBuffer> records) {
+        CompletableFuture<Long> count = new CompletableFuture<>();
+        records.subscribe(new Flow.Subscriber<>() {
+            private static final int BATCH = 256;
+            private Flow.Subscription subscription;
+            private long rows;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(BATCH);
+            }
+
+            @Override
+            public void onNext(ByteBuffer row) {
+                if (++rows % BATCH == 0) {
+                    subscription.request(BATCH);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                count.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                count.complete(rows);
+            }
+        });
+        return count;
     }
 // snippet-end:[s3.java2.async.selectObjectContentMethod.response-handler]
 
 // snippet-start:[s3.java2.async.selectObjectContentMethod.stream-info]
     // The EventStreamInfo class is used to store information gathered while processing the response stream.
     static class EventStreamInfo {
-        private final List<String> records = new ArrayList<>();
+        private long recordCount;
         private Integer countOnRecordsCalled = 0;
         private Integer countContinuationEvents = 0;
         private Stats stats;
@@ -158,16 +190,16 @@ public class SelectObjectContentExample {
             countContinuationEvents++;
         }
 
-        void addRecord(String record) {
-            records.add(record);
+        void addRecords(long count) {
+            recordCount += count;
         }
 
         void addStats(Stats stats) {
             this.stats = stats;
         }
 
-        public List<String> getRecords() {
-            return records;
+        public long getRecordCount() {
+            return recordCount;
         }
 
         public Integer getCountOnRecordsCalled() {
@@ -210,11 +242,11 @@ public class SelectObjectContentExample {
 
         EventStreamInfo eventStreamInfo = new EventStreamInfo();
 
-        s3AsyncClient.selectObjectContent(select, buildResponseHandler(eventStreamInfo)).join();
-        long recordCount = eventStreamInfo.getRecords().stream().mapToInt(record ->
-                record.split("\n").length
-        ).sum();
-        logger.info("Total records {}: {}", fileType, recordCount);
+        SelectRecordReader reader = SelectRecordReader.forCsv(buildVisitor(eventStreamInfo));
+        CompletableFuture<Void> selected = s3AsyncClient.selectObjectContent(select, reader);
+        eventStreamInfo.addRecords(countRecords(reader).join());
+        selected.join();
+        logger.info("Total records {}: {}", fileType, eventStreamInfo.getRecordCount());
         logger.info("Visitor onRecords for fileType {} called {} times", fileType, eventStreamInfo.getCountOnRecordsCalled());
         logger.info("Visitor onStats for fileType {}, {}", fileType, eventStreamInfo.getStats());
         logger.info("Visitor onContinuations for fileType {}, {}", fileType, eventStreamInfo.getCountContinuationEvents());
@@ -0,0 +1,296 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3.async;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.RecordsEvent;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentEventStream;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentResponse;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentResponseHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the records returned by SelectObjectContent one row at a time, and
+ * publishes each row as a read-only ByteBuffer without its record delimiter.
+ * <p>
+ * Rows are sliced directly out of the Records event payloads, so a row is only
+ * copied when it is split across two events. Events are requested from the
+ * response stream one at a time, only when the subscriber has asked for more
+ * rows than the events received so far hold. Every event, including Records
+ * events, is also passed to a Visitor, which is where Stats, Progress, and
+ * Continuation events can be handled.
+ * <p>
+ * Only one subscriber is supported. Use {@link #toUtf8String(ByteBuffer)} to
+ * decode a row.
+ */
+public class SelectRecordReader implements SelectObjectContentResponseHandler, Flow.Publisher<ByteBuffer> {
+    private static final byte NEWLINE = '\n';
+    private static final byte QUOTE = '"';
+
+    private final byte recordDelimiter;
+    private final boolean quotedFields;
+    private final SelectObjectContentResponseHandler.Visitor visitor;
+
+    private final Queue<ByteBuffer> payloads = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Subscription upstream;
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+    private volatile boolean eventRequested;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+
+    // Parser state. Only touched inside drain().
+    private ByteBuffer current;
+    private ByteBuffer partial = ByteBuffer.allocate(0);
+    private boolean inQuotes;
+
+    /**
+     * @param recordDelimiter the byte that ends each record
+     * @param quotedFields    true if the delimiter can appear inside double-quoted
+     *                        CSV fields
+     * @param visitor         receives every event of the response stream
+     */
+    public SelectRecordReader(byte recordDelimiter, boolean quotedFields,
+            SelectObjectContentResponseHandler.Visitor visitor) {
+        this.recordDelimiter = recordDelimiter;
+        this.quotedFields = quotedFields;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Reads CSV output that uses the default newline record delimiter.
+     */
+    public static SelectRecordReader forCsv(SelectObjectContentResponseHandler.Visitor visitor) {
+        return new SelectRecordReader(NEWLINE, true, visitor);
+    }
+
+    /**
+     * Reads JSON Lines output that uses the default newline record delimiter.
+     */
+    public static SelectRecordReader forJson(SelectObjectContentResponseHandler.Visitor visitor) {
+        return new SelectRecordReader(NEWLINE, false, visitor);
+    }
+
+    public static String toUtf8String(ByteBuffer row) {
+        return StandardCharsets.UTF_8.decode(row.duplicate()).toString();
+    }
+
+    @Override
+    public void responseReceived(SelectObjectContentResponse response) {
+    }
+
+    @Override
+    public void onEventStream(SdkPublisher<SelectObjectContentEventStream> publisher) {
+        publisher.subscribe(new Subscriber<SelectObjectContentEventStream>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                upstream = subscription;
+                drain();
+            }
+
+            @Override
+            public void onNext(SelectObjectContentEventStream event) {
+                event.accept(visitor);
+                if (event instanceof RecordsEvent) {
+                    payloads.add(((RecordsEvent) event).payload().asByteBuffer());
+                    eventRequested = false;
+                } else {
+                    // Other events carry no rows, so ask for the next one.
+                    upstream.request(1);
+                }
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                exceptionOccurred(t);
+            }
+
+            @Override
+            public void onComplete() {
+                done = true;
+                drain();
+            }
+        });
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void complete() {
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super ByteBuffer> rowSubscriber) {
+        if (subscriber != null) {
+            rowSubscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            rowSubscriber.onError(new IllegalStateException("SelectRecordReader supports one subscriber"));
+            return;
+        }
+
+        subscriber = rowSubscriber;
+        rowSubscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    rowSubscriber.onError(new IllegalArgumentException("Requested " + n + " rows"));
+                    return;
+                }
+                demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super ByteBuffer> rows = subscriber;
+            while (rows != null && !cancelled) {
+                boolean finished = done;
+                if (error != null) {
+                    cancelled = true;
+                    rows.onError(error);
+                    break;
+                }
+                if (finished && payloads.isEmpty() && (current == null || !current.hasRemaining())
+                        && partial.position() == 0) {
+                    cancelled = true;
+                    rows.onComplete();
+                    break;
+                }
+                if (demand.get() == 0) {
+                    break;
+                }
+
+                ByteBuffer row = nextRow();
+                if (row == null && finished) {
+                    // The last record may not end with a delimiter.
+                    if (partial.position() > 0) {
+                        row = takePartial();
+                    } else {
+                        cancelled = true;
+                        rows.onComplete();
+                        break;
+                    }
+                }
+                if (row != null) {
+                    demand.decrementAndGet();
+                    rows.onNext(row);
+                    continue;
+                }
+
+                Subscription subscription = upstream;
+                if (subscription != null && !eventRequested) {
+                    eventRequested = true;
+                    subscription.request(1);
+                }
+                break;
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Returns the next complete row, or null if more events are needed.
+     */
+    private ByteBuffer nextRow() {
+        while (true) {
+            if (current == null || !current.hasRemaining()) {
+                current = payloads.poll();
+                if (current == null) {
+                    return null;
+                }
+            }
+
+            int start = current.position();
+            int end = findDelimiter(current);
+            if (end < 0) {
+                appendPartial(current, start, current.limit());
+                current.position(current.limit());
+                continue;
+            }
+
+            current.position(end + 1);
+            if (partial.position() == 0) {
+                return current.slice(start, end - start);
+            }
+            appendPartial(current, start, end);
+            return takePartial();
+        }
+    }
+
+    private int findDelimiter(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (quotedFields && b == QUOTE) {
+                inQuotes = !inQuotes;
+            } else if (b == recordDelimiter && !inQuotes) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendPartial(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (partial.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(partial.position() + length, partial.capacity() * 2));
+            partial.flip();
+            larger.put(partial);
+            partial = larger;
+        }
+        partial.put(partial.position(), buffer, start, length);
+        partial.position(partial.position() + length);
+    }
+
+    private ByteBuffer takePartial() {
+        ByteBuffer row = ByteBuffer.allocate(partial.position());
+        partial.flip();
+        row.put(partial).flip();
+        partial.clear();
+        return row.asReadOnlyBuffer();
+    }
+}
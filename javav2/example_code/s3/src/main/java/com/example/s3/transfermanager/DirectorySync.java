@@ -0,0 +1,332 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3.transfermanager;
+
+import com.example.s3.PartChecksums;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.config.DownloadFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Synchronizes a local directory with an Amazon S3 prefix, transferring only the
+ * files that changed since the last sync.
+ * <p>
+ * A manifest file remembers, for each file, the size and modification time it had
+ * when it was last transferred, its SHA-256 checksum, and the ETag of the object.
+ * A file is skipped when the object still has that ETag and the local file still
+ * has that size and modification time. When only the modification time changed,
+ * an upload compares the checksum before deciding, so files that were touched but
+ * not edited are not sent again.
+ * <p>
+ * Transfers go through the given S3TransferManager, with a bounded number in
+ * flight. The manifest is written when the sync finishes, even if some transfers
+ * failed, so the next sync only retries the files that are still out of date.
+ */
+public class DirectorySync {
+    private static final Logger logger = LoggerFactory.getLogger(DirectorySync.class);
+    private static final int TRANSFERS_IN_FLIGHT = 64;
+
+    private final S3TransferManager transferManager;
+    private final S3Client s3Client;
+    private final Path manifestFile;
+
+    /**
+     * @param transferManager the transfer manager that uploads and downloads files
+     * @param s3Client        the client used to list the objects under the prefix
+     * @param manifestFile    the file that records the state of the last sync
+     */
+    public DirectorySync(S3TransferManager transferManager, S3Client s3Client, Path manifestFile) {
+        this.transferManager = transferManager;
+        this.s3Client = s3Client;
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Uploads the files under a directory whose content is not already stored
+     * under the prefix.
+     */
+    public Result upload(Path sourceDirectory, String bucketName, String prefix) throws IOException {
+        Manifest manifest = Manifest.read(manifestFile, bucketName, prefix);
+        Map<String, S3Object> objects = listObjects(bucketName, prefix);
+        Result result = new Result();
+        Transfers transfers = new Transfers();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(sourceDirectory)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String relativePath = relativePath(sourceDirectory, file);
+            String key = prefix + relativePath;
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Entry entry = manifest.entries.get(relativePath);
+            S3Object object = objects.get(key);
+            boolean objectUnchanged = entry != null && object != null && object.eTag().equals(entry.eTag);
+
+            if (objectUnchanged && entry.size == size && entry.modified == modified) {
+                result.skipped(size);
+                continue;
+            }
+            String checksum = sha256(file, size);
+            if (objectUnchanged && entry.size == size && checksum.equals(entry.checksum)) {
+                // Touched but not edited.
+                manifest.entries.put(relativePath, new Entry(size, modified, checksum, entry.eTag));
+                result.skipped(size);
+                continue;
+            }
+
+            transfers.start(() -> transferManager.uploadFile(b -> b
+                            .source(file)
+                            .putObjectRequest(p -> p.bucket(bucketName).key(key)))
+                    .completionFuture()
+                    .thenAccept(upload -> {
+                        manifest.entries.put(relativePath,
+                                new Entry(size, modified, checksum, upload.response().eTag()));
+                        result.transferred(size);
+                    }), key, result);
+        }
+
+        transfers.await();
+        manifest.write(manifestFile);
+        logger.info("Upload sync of {} to s3://{}/{}: {}", sourceDirectory, bucketName, prefix, result);
+        return result;
+    }
+
+    /**
+     * Downloads the objects under the prefix that are missing or out of date in a
+     * directory.
+     */
+    public Result download(String bucketName, String prefix, Path destinationDirectory, DownloadFilter filter)
+            throws IOException {
+        Manifest manifest = Manifest.read(manifestFile, bucketName, prefix);
+        Result result = new Result();
+        Transfers transfers = new Transfers();
+        Path destination = destinationDirectory.toAbsolutePath().normalize();
+
+        for (S3Object object : listObjects(bucketName, prefix).values()) {
+            // Keys that end in "/" are folder markers, not files.
+            if (object.key().endsWith("/") || (filter != null && !filter.test(object))) {
+                continue;
+            }
+            String relativePath = object.key().substring(prefix.length());
+            Path file = destination.resolve(relativePath).normalize();
+            if (!file.startsWith(destination) || file.equals(destination)) {
+                logger.warn("Object [{}] is outside of {}, so it is not downloaded", object.key(), destination);
+                result.failed();
+                continue;
+            }
+            Entry entry = manifest.entries.get(relativePath);
+            if (entry != null && entry.eTag.equals(object.eTag()) && Files.isRegularFile(file)
+                    && Files.size(file) == entry.size
+                    && Files.getLastModifiedTime(file).toMillis() == entry.modified) {
+                result.skipped(object.size());
+                continue;
+            }
+
+            Files.createDirectories(file.getParent());
+            transfers.start(() -> transferManager.downloadFile(b -> b
+                            .destination(file)
+                            .getObjectRequest(g -> g.bucket(bucketName).key(object.key()).ifMatch(object.eTag())))
+                    .completionFuture()
+                    .thenAccept(download -> {
+                        try {
+                            // The checksum is only needed to compare uploads, so it is not computed here.
+                            manifest.entries.put(relativePath, new Entry(Files.size(file),
+                                    Files.getLastModifiedTime(file).toMillis(), "-", object.eTag()));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        result.transferred(object.size());
+                    }), object.key(), result);
+        }
+
+        transfers.await();
+        manifest.write(manifestFile);
+        logger.info("Download sync of s3://{}/{} to {}: {}", bucketName, prefix, destinationDirectory, result);
+        return result;
+    }
+
+    private Map<String, S3Object> listObjects(String bucketName, String prefix) {
+        Map<String, S3Object> objects = new HashMap<>();
+        s3Client.listObjectsV2Paginator(b -> b.bucket(bucketName).prefix(prefix)).contents()
+                .forEach(object -> objects.put(object.key(), object));
+        return objects;
+    }
+
+    private static String relativePath(Path directory, Path file) {
+        return directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static String sha256(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return PartChecksums.toBase64(PartChecksums.checksum(ChecksumAlgorithm.SHA256, channel, 0, size));
+        }
+    }
+
+    /**
+     * Starts transfers with a bounded number in flight and waits for all of them.
+     */
+    private static final class Transfers {
+        private final Semaphore inFlight = new Semaphore(TRANSFERS_IN_FLIGHT);
+        private final List<CompletableFuture<Void>> started = new ArrayList<>();
+
+        private void start(Supplier<CompletableFuture<Void>> transfer, String key,
+                           Result result) {
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<Void> future;
+            try {
+                future = transfer.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            started.add(future.whenComplete((v, error) -> {
+                inFlight.release();
+                if (error != null) {
+                    logger.warn("Object [{}] failed to transfer: {}", key, error.getMessage());
+                    result.failed();
+                }
+            }).exceptionally(error -> null));
+        }
+
+        private void await() {
+            CompletableFuture.allOf(started.toArray(new CompletableFuture[0])).join();
+        }
+    }
+
+    /**
+     * The state of each file after the last sync, keyed by its path relative to the directory.
+     * The first line of the file holds the bucket and prefix; each other line is
+     * "size modified checksum eTag path".
+     */
+    private static final class Manifest {
+        private final String header;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        private Manifest(String header) {
+            this.header = header;
+        }
+
+        private static Manifest read(Path path, String bucketName, String prefix) throws IOException {
+            Manifest manifest = new Manifest(bucketName + " " + prefix);
+            if (!Files.exists(path)) {
+                return manifest;
+            }
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(manifest.header)) {
+                // The manifest describes another bucket or prefix.
+                return manifest;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(" ", 5);
+                manifest.entries.put(fields[4], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        fields[2], fields[3]));
+            }
+            return manifest;
+        }
+
+        private void write(Path path) throws IOException {
+            StringBuilder contents = new StringBuilder(header).append('\n');
+            entries.forEach((relativePath, entry) -> contents.append(entry.size).append(' ')
+                    .append(entry.modified).append(' ')
+                    .append(entry.checksum).append(' ')
+                    .append(entry.eTag).append(' ')
+                    .append(relativePath).append('\n'));
+
+            // Replace the manifest in one step, so a crash cannot leave half of it.
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(temporary, contents, StandardCharsets.UTF_8);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long modified;
+        private final String checksum;
+        private final String eTag;
+
+        private Entry(long size, long modified, String checksum, String eTag) {
+            this.size = size;
+            this.modified = modified;
+            this.checksum = checksum;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * The number of files and bytes that a sync transferred or skipped.
+     */
+    public static final class Result {
+        private final AtomicLong filesTransferred = new AtomicLong();
+        private final AtomicLong bytesTransferred = new AtomicLong();
+        private final AtomicLong filesSkipped = new AtomicLong();
+        private final AtomicLong bytesSkipped = new AtomicLong();
+        private final AtomicLong filesFailed = new AtomicLong();
+
+        private void transferred(long bytes) {
+            filesTransferred.incrementAndGet();
+            bytesTransferred.addAndGet(bytes);
+        }
+
+        private void skipped(long bytes) {
+            filesSkipped.incrementAndGet();
+            bytesSkipped.addAndGet(bytes);
+        }
+
+        private void failed() {
+            filesFailed.incrementAndGet();
+        }
+
+        public long filesTransferred() {
+            return filesTransferred.get();
+        }
+
+        public long bytesTransferred() {
+            return bytesTransferred.get();
+        }
+
+        public long filesSkipped() {
+            return filesSkipped.get();
+        }
+
+        public long bytesSkipped() {
+            return bytesSkipped.get();
+        }
+
+        public long filesFailed() {
+            return filesFailed.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files (%d bytes) transferred, %d files (%d bytes) skipped, %d failed",
+                    filesTransferred(), bytesTransferred(), filesSkipped(), bytesSkipped(), filesFailed());
+        }
+    }
+}
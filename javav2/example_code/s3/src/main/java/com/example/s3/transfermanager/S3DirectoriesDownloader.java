@@ -60,6 +60,16 @@ public class S3DirectoriesDownloader {
             numFilesFailedToDownload = downloader.downloadS3Directories(S3ClientFactory.transferManager,
                     downloader.destinationPathURI, downloader.bucketName);
             logger.info("Number of files that failed to download [{}].", numFilesFailedToDownload);
+
+            // The files downloaded above are not in the manifest yet, so the first sync downloads them again;
+            // the second one skips them all.
+            Path manifest = Paths.get(System.getProperty("java.io.tmpdir"), downloader.bucketName + ".sync");
+            for (int i = 0; i < 2; i++) {
+                DirectorySync.Result result = downloader.syncS3Directories(S3ClientFactory.transferManager,
+                        downloader.destinationPathURI, downloader.bucketName, manifest);
+                logger.info("Bytes transferred [{}], bytes skipped [{}].", result.bytesTransferred(),
+                        result.bytesSkipped());
+            }
         } catch (Exception e) {
             logger.error("Exception [{}]", e.getMessage(), e);
         } finally {
@@ -138,6 +148,19 @@ public class S3DirectoriesDownloader {
     }
     // snippet-end:[s3.tm.java2.download-s3-directories.main]
 
+    /**
+     * Downloads the same 'directories' as {@link #downloadS3Directories}, but only the objects that changed
+     * since the sync recorded in the manifest.
+     */
+    public DirectorySync.Result syncS3Directories(S3TransferManager transferManager, URI destinationPathURI,
+                                                  String bucketName, Path manifest) throws IOException {
+        DownloadFilter folderFilter = s3Object -> filterFolderNames.stream()
+                .anyMatch(folderName -> s3Object.key().startsWith(folderName + "/"));
+
+        DirectorySync directorySync = new DirectorySync(transferManager, S3ClientFactory.s3Client, manifest);
+        return directorySync.download(bucketName, "", Paths.get(destinationPathURI), folderFilter);
+    }
+
     private void setUp() {
         S3ClientFactory.s3Client.createBucket(b -> b.bucket(bucketName));
         S3ClientFactory.s3Waiter.waitUntilBucketExists(r -> r.bucket(bucketName));
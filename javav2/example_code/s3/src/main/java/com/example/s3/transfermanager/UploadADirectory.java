@@ -12,9 +12,11 @@ import software.amazon.awssdk.transfer.s3.model.CompletedDirectoryUpload;
 import software.amazon.awssdk.transfer.s3.model.DirectoryUpload;
 import software.amazon.awssdk.transfer.s3.model.UploadDirectoryRequest;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.UUID;
 // snippet-end:[s3.tm.java2.uploadadirectory.import]
@@ -43,6 +45,19 @@ public class UploadADirectory {
         Integer numFailedUploads = upload.uploadDirectory(S3ClientFactory.transferManager, upload.sourceDirectory,
                 upload.bucketName);
         logger.info("Number of failed transfers [{}].", numFailedUploads);
+
+        // A second sync finds every file already uploaded and skips it.
+        Path manifest = Paths.get(System.getProperty("java.io.tmpdir"), upload.bucketName + ".sync");
+        try {
+            for (int i = 0; i < 2; i++) {
+                DirectorySync.Result result = upload.syncDirectory(S3ClientFactory.transferManager,
+                        upload.sourceDirectory, upload.bucketName, manifest);
+                logger.info("Bytes transferred [{}], bytes skipped [{}].", result.bytesTransferred(),
+                        result.bytesSkipped());
+            }
+        } catch (IOException e) {
+            logger.error("Error syncing directory: {}", e.getMessage());
+        }
         upload.cleanUp();
     }
 
@@ -61,6 +76,15 @@ public class UploadADirectory {
     }
     // snippet-end:[s3.tm.java2.uploadadirectory.main]
 
+    /**
+     * Uploads only the files that changed since the sync recorded in the manifest.
+     */
+    public DirectorySync.Result syncDirectory(S3TransferManager transferManager, URI sourceDirectory,
+            String bucketName, Path manifest) throws IOException {
+        DirectorySync directorySync = new DirectorySync(transferManager, S3ClientFactory.s3Client, manifest);
+        return directorySync.upload(Paths.get(sourceDirectory), bucketName, "");
+    }
+
     private void setUp() {
         S3ClientFactory.s3Client.createBucket(b -> b.bucket(bucketName));
         URL dirResource = UploadADirectory.class.getClassLoader().getResource("uploadDirectory");
@@ -2,6 +2,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package com.example.s3.util;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.Core;
 import org.apache.logging.log4j.core.Filter;
@@ -11,50 +12,188 @@ import org.apache.logging.log4j.core.config.plugins.Plugin;
 import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
 import org.apache.logging.log4j.core.config.plugins.PluginElement;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
-import org.apache.logging.log4j.core.impl.MutableLogEvent;
+import org.apache.logging.log4j.message.Message;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Keeps the most recent log events in memory so that tests can inspect them.
+ * <p>
+ * Events are stored in a ring buffer with a fixed number of slots (the capacity
+ * attribute, rounded up to a power of two). Loggers on any number of threads
+ * claim a slot by incrementing a sequence number and publish an immutable
+ * {@link Event} into it, without taking a lock. Once the buffer is full, each new
+ * event replaces the oldest one. Readers take a snapshot and skip slots that have
+ * been overwritten or are still being written.
+ * <p>
+ * The message, its format, and the string value of each parameter are captured
+ * when the event is logged, because Log4j reuses mutable event objects.
+ */
 @Plugin(
         name = "MemoryLog4jAppender",
         category = Core.CATEGORY_NAME,
         elementType = Appender.ELEMENT_TYPE)
 public class MemoryLog4jAppender extends AbstractAppender {
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final String[] NO_PARAMETERS = new String[0];
 
-    private Map<String, String> eventMap = new LinkedHashMap<>();
-    private StringBuilder stringBuilder = new StringBuilder();
+    private final AtomicReferenceArray<Event> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong firstSequence = new AtomicLong();
 
-    protected MemoryLog4jAppender(String name, Filter filter) {
-        super(name, filter, null);
+    protected MemoryLog4jAppender(String name, Filter filter, int capacity) {
+        super(name, filter, null, true, null);
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
     }
 
     @PluginFactory
     public static MemoryLog4jAppender createAppender(
             @PluginAttribute("name") String name,
+            @PluginAttribute(value = "capacity", defaultInt = DEFAULT_CAPACITY) int capacity,
             @PluginElement("Filter") Filter filter) {
-        return new MemoryLog4jAppender(name, filter);
+        return new MemoryLog4jAppender(name, filter, capacity);
     }
 
     @Override
     public void append(LogEvent event) {
-        MutableLogEvent eventWithParameters = (MutableLogEvent) event;
-        if (eventWithParameters.getParameterCount() == 2) {
-            eventMap.put(eventWithParameters.getParameters()[0].toString(), eventWithParameters.getParameters()[1].toString());
-        } else {
-            eventMap.put (eventWithParameters.toString(), null);
+        Message message = event.getMessage();
+        Object[] parameters = message.getParameters();
+        String[] values = NO_PARAMETERS;
+        if (parameters != null && parameters.length > 0) {
+            values = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                values[i] = String.valueOf(parameters[i]);
+            }
         }
-        if (eventWithParameters.getFormat() != null) {
-            stringBuilder.append(eventWithParameters.getFormattedMessage() + "\n");
-        } else {
-            stringBuilder.append(eventWithParameters.getMessage() + "\n");
+
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) sequence & mask, new Event(sequence, event.getTimeMillis(), event.getLevel(),
+                event.getLoggerName(), event.getThreadName(), message.getFormat(), message.getFormattedMessage(),
+                values));
+    }
+
+    /**
+     * Returns the events still held in the buffer, oldest first.
+     */
+    public List<Event> getEvents() {
+        long end = nextSequence.get();
+        long start = Math.max(firstSequence.get(), end - slots.length());
+        List<Event> events = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Event event = slots.get((int) sequence & mask);
+            // Skip slots that a newer event has taken, or that are not published yet.
+            if (event != null && event.sequence == sequence) {
+                events.add(event);
+            }
         }
+        return events;
+    }
+
+    /**
+     * Returns the number of events that were replaced by newer events before
+     * being read.
+     */
+    public long getDroppedCount() {
+        return Math.max(0, nextSequence.get() - firstSequence.get() - slots.length());
+    }
+
+    /**
+     * Forgets every event logged so far.
+     */
+    public void clear() {
+        firstSequence.set(nextSequence.get());
     }
 
-    public Map<String, String> getEventMap(){
-        return this.eventMap;
+    /**
+     * Returns the held events as a map. Events logged with two parameters, such as
+     * logger.info("{}: {}", name, value), map the first parameter to the second;
+     * other events map their message to null.
+     */
+    public Map<String, String> getEventMap() {
+        Map<String, String> eventMap = new LinkedHashMap<>();
+        for (Event event : getEvents()) {
+            if (event.parameters.length == 2) {
+                eventMap.put(event.parameters[0], event.parameters[1]);
+            } else {
+                eventMap.put(event.message, null);
+            }
+        }
+        return eventMap;
     }
-    public String getEventsAsString(){
+
+    /**
+     * Returns the messages of the held events, one per line.
+     */
+    public String getEventsAsString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Event event : getEvents()) {
+            stringBuilder.append(event.message).append('\n');
+        }
         return stringBuilder.toString();
     }
+
+    /**
+     * A log event as it was when it was logged.
+     */
+    public static final class Event {
+        private final long sequence;
+        private final long timeMillis;
+        private final Level level;
+        private final String loggerName;
+        private final String threadName;
+        private final String format;
+        private final String message;
+        private final String[] parameters;
+
+        Event(long sequence, long timeMillis, Level level, String loggerName, String threadName, String format,
+              String message, String[] parameters) {
+            this.sequence = sequence;
+            this.timeMillis = timeMillis;
+            this.level = level;
+            this.loggerName = loggerName;
+            this.threadName = threadName;
+            this.format = format;
+            this.message = message;
+            this.parameters = parameters;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public String getLoggerName() {
+            return loggerName;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Returns the string value of each message parameter.
+         */
+        public List<String> getParameters() {
+            return List.of(parameters);
+        }
+    }
 }
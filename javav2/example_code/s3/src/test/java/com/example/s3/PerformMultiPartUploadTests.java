@@ -6,10 +6,13 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.nio.file.Path;
+
 class PerformMultiPartUploadTests {
     private final S3Client s3Client = PerformMultiPartUpload.s3Client;
     private final String bucketName = PerformMultiPartUpload.bucketName;
@@ -65,4 +68,20 @@ class PerformMultiPartUploadTests {
             PerformMultiPartUpload.deleteResources();
         }
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    void parallelMultipartUploadWithS3ClientTest(@TempDir Path checkpointDirectory){
+        PerformMultiPartUpload.createBucket();
+        try {
+            performMultiPartUpload.parallelMultipartUploadWithS3Client(PerformMultiPartUpload.filePath,
+                checkpointDirectory.resolve("upload.checkpoint"));
+            GetObjectResponse response = s3Client.getObject(b -> b.bucket(bucketName).key(key).partNumber(1)).response();
+            Assertions.assertTrue(response.partsCount() > 1);
+        } catch (SdkException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            PerformMultiPartUpload.deleteResources();
+        }
+    }
 }
\ No newline at end of file
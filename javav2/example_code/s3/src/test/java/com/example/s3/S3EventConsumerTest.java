@@ -0,0 +1,168 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResultEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs S3EventConsumer against an in-memory stand-in for an SQS queue.
+ */
+class S3EventConsumerTest {
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/s3-events";
+
+    @Test
+    void handlesAndDeletesEveryMessage() throws InterruptedException {
+        LocalQueue queue = new LocalQueue();
+        for (int i = 0; i < 500; i++) {
+            queue.send(eventJson("key-" + i));
+        }
+        queue.send("{\"Service\":\"Amazon S3\",\"Event\":\"s3:TestEvent\"}");
+
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        try (S3EventConsumer consumer = new S3EventConsumer(queue, QUEUE_URL, 4, 8,
+                record -> keys.add(record.getS3().getObject().getKey()))) {
+            consumer.start();
+            consumer.awaitQuiet(Duration.ofMillis(500));
+
+            S3EventConsumer.Metrics metrics = consumer.metrics();
+            assertEquals(501, metrics.messagesReceived());
+            assertEquals(500, metrics.recordsHandled());
+            assertEquals(501, metrics.messagesDeleted());
+            assertTrue(metrics.maxLagMillis() >= metrics.averageLagMillis());
+        }
+        assertEquals(500, keys.size());
+        assertEquals(0, queue.remaining());
+    }
+
+    @Test
+    void leavesFailedMessagesOnTheQueue() throws InterruptedException {
+        LocalQueue queue = new LocalQueue();
+        for (int i = 0; i < 50; i++) {
+            queue.send(eventJson("key-" + i));
+        }
+
+        try (S3EventConsumer consumer = new S3EventConsumer(queue, QUEUE_URL, 2, 2, record -> {
+            if (record.getS3().getObject().getKey().equals("key-7")) {
+                throw new IllegalStateException("Unable to handle key-7");
+            }
+        })) {
+            consumer.start();
+            consumer.awaitQuiet(Duration.ofMillis(500));
+
+            S3EventConsumer.Metrics metrics = consumer.metrics();
+            assertEquals(1, metrics.messagesFailed());
+            assertEquals(49, metrics.messagesDeleted());
+        }
+        assertEquals(1, queue.remaining());
+    }
+
+    @Test
+    void keepsEveryReceiverPolling() throws InterruptedException {
+        LocalQueue queue = new LocalQueue();
+        try (S3EventConsumer consumer = new S3EventConsumer(queue, QUEUE_URL, 4, 8, record -> { })) {
+            consumer.start();
+            Thread.sleep(500);
+            assertEquals(4, queue.maxOutstandingReceives());
+        }
+    }
+
+    private static String eventJson(String key) {
+        return "{\"Records\":[{\"eventVersion\":\"2.1\",\"eventSource\":\"aws:s3\",\"awsRegion\":\"us-east-1\","
+                + "\"eventTime\":\"" + Instant.now() + "\",\"eventName\":\"ObjectCreated:Put\","
+                + "\"s3\":{\"s3SchemaVersion\":\"1.0\",\"bucket\":{\"name\":\"amzn-s3-demo-bucket\","
+                + "\"arn\":\"arn:aws:s3:::amzn-s3-demo-bucket\"},\"object\":{\"key\":\"" + key + "\",\"size\":1}}}]}";
+    }
+
+    /**
+     * A queue that hands each message out once and keeps it until it is deleted.
+     */
+    private static final class LocalQueue implements SqsAsyncClient {
+        private final BlockingQueue<Message> visible = new LinkedBlockingQueue<>();
+        private final Map<String, Message> received = new ConcurrentHashMap<>();
+        private final AtomicInteger outstandingReceives = new AtomicInteger();
+        private final AtomicInteger maxOutstandingReceives = new AtomicInteger();
+
+        void send(String body) {
+            String id = UUID.randomUUID().toString();
+            visible.add(Message.builder().messageId(id).receiptHandle("handle-" + id).body(body).build());
+        }
+
+        int remaining() {
+            return visible.size() + received.size();
+        }
+
+        int maxOutstandingReceives() {
+            return maxOutstandingReceives.get();
+        }
+
+        @Override
+        public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+            maxOutstandingReceives.accumulateAndGet(outstandingReceives.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                List<Message> messages = new ArrayList<>();
+                try {
+                    // A short long poll, so the tests stay fast.
+                    Message first = visible.poll(100, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        messages.add(first);
+                        visible.drainTo(messages, request.maxNumberOfMessages() - 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                messages.forEach(message -> received.put(message.receiptHandle(), message));
+                outstandingReceives.decrementAndGet();
+                return ReceiveMessageResponse.builder().messages(messages).build();
+            });
+        }
+
+        @Override
+        public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.entries()) {
+                if (received.remove(entry.receiptHandle()) != null) {
+                    successful.add(DeleteMessageBatchResultEntry.builder().id(entry.id()).build());
+                }
+            }
+            return CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder()
+                    .successful(successful)
+                    .failed(List.of())
+                    .build());
+        }
+
+        @Override
+        public String serviceName() {
+            return "sqs";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
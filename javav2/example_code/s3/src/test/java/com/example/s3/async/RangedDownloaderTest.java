@@ -0,0 +1,165 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3.async;
+
+import com.example.s3.PartChecksums;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs RangedDownloader against an in-memory stand-in for an object in Amazon S3.
+ */
+class RangedDownloaderTest {
+    private static final int RANGE_SIZE = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheStartOfAContentRange() {
+        assertEquals(0, RangedDownloader.contentRangeStart("bytes 0-8388607/20971520"));
+        assertEquals(8388608, RangedDownloader.contentRangeStart("bytes 8388608-16777215/20971520"));
+    }
+
+    @Test
+    void resumesWithTheMissingRanges() {
+        byte[] data = randomBytes(9500);
+        LocalObject object = new LocalObject(data);
+        object.failRange = 7000;
+        Path destination = directory.resolve("object.bin");
+        RangedDownloader downloader = new RangedDownloader(object, RANGE_SIZE, 3);
+
+        assertThrows(CompletionException.class, () -> downloader.download("bucket", "key", destination).join());
+        assertTrue(Files.exists(RangedDownloader.manifestFor(destination)));
+
+        object.failRange = -1;
+        object.rangesRequested.clear();
+        assertEquals(9500, downloader.download("bucket", "key", destination).join());
+        assertEquals(List.of(7000L), object.rangesRequested);
+        assertArrayEquals(data, readAll(destination));
+        assertFalse(Files.exists(RangedDownloader.manifestFor(destination)));
+    }
+
+    @Test
+    void startsOverAfterAChecksumMismatch() {
+        byte[] data = randomBytes(4500);
+        LocalObject object = new LocalObject(data);
+        object.sha256 = PartChecksums.toBase64(
+                PartChecksums.checksum(ChecksumAlgorithm.SHA256, ByteBuffer.wrap(data)));
+        object.served = data.clone();
+        object.served[4200] ^= 1;
+        Path destination = directory.resolve("object.bin");
+        RangedDownloader downloader = new RangedDownloader(object, RANGE_SIZE, 2);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> downloader.download("bucket", "key", destination).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertFalse(Files.exists(RangedDownloader.manifestFor(destination)));
+
+        // Every range is downloaded again, not only the ones after the failure.
+        object.served = data;
+        object.rangesRequested.clear();
+        assertEquals(4500, downloader.download("bucket", "key", destination).join());
+        assertEquals(5, object.rangesRequested.size());
+        assertArrayEquals(data, readAll(destination));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readAll(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * An object that was uploaded in one piece, served by byte range. A request for
+     * the range that starts at failRange fails once.
+     */
+    private static final class LocalObject implements S3AsyncClient {
+        private final byte[] data;
+        private byte[] served;
+        private String sha256;
+        private volatile long failRange = -1;
+        private final List<Long> rangesRequested = new CopyOnWriteArrayList<>();
+
+        LocalObject(byte[] data) {
+            this.data = data;
+            this.served = data;
+        }
+
+        @Override
+        public CompletableFuture<HeadObjectResponse> headObject(HeadObjectRequest request) {
+            return CompletableFuture.completedFuture(HeadObjectResponse.builder()
+                    .eTag("\"0123456789abcdef\"")
+                    .contentLength((long) data.length)
+                    .checksumSHA256(sha256)
+                    .build());
+        }
+
+        @Override
+        public <T> CompletableFuture<T> getObject(GetObjectRequest request,
+                                                   AsyncResponseTransformer<GetObjectResponse, T> transformer) {
+            String[] range = request.range().substring("bytes=".length()).split("-");
+            long start = Long.parseLong(range[0]);
+            int end = Integer.parseInt(range[1]) + 1;
+            rangesRequested.add(start);
+            if (start == failRange) {
+                failRange = -1;
+                return CompletableFuture.failedFuture(new IllegalStateException("Connection reset"));
+            }
+
+            byte[] bytes = Arrays.copyOfRange(served, (int) start, end);
+            CompletableFuture<T> result = transformer.prepare();
+            transformer.onResponse(GetObjectResponse.builder()
+                    .contentLength((long) bytes.length)
+                    .contentRange("bytes " + start + "-" + (end - 1) + "/" + data.length)
+                    .build());
+            transformer.onStream(AsyncRequestBody.fromBytes(bytes));
+            return result;
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3.async;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentEventStream;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentResponseHandler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Feeds SelectRecordReader Records events whose boundaries fall inside rows and
+ * inside quoted fields.
+ */
+class SelectRecordReaderTest {
+    private static final SelectObjectContentResponseHandler.Visitor NO_VISITOR =
+            new SelectObjectContentResponseHandler.Visitor() {
+            };
+
+    @Test
+    void joinsARowSplitAcrossEvents() {
+        Rows rows = read(SelectRecordReader.forCsv(NO_VISITOR),
+                records("a,1\nb,"), records("2\nc,3\nd"), records(",4"));
+
+        assertEquals(List.of("a,1", "b,2", "c,3", "d,4"), rows.values);
+        assertNull(rows.error);
+        assertEquals(1, rows.completions);
+    }
+
+    @Test
+    void keepsADelimiterInsideQuotesAcrossEvents() {
+        // The quoted field opens in one event, and its newline and closing quote arrive in the next ones.
+        Rows rows = read(SelectRecordReader.forCsv(NO_VISITOR),
+                records("x,\"line one"), records("\nline two"), records("\",9\ny,\"a\"\"b\"\n"));
+
+        assertEquals(List.of("x,\"line one\nline two\",9", "y,\"a\"\"b\""), rows.values);
+        assertEquals(1, rows.completions);
+    }
+
+    @Test
+    void splitsJsonLinesOnEveryNewline() {
+        // JSON output is not quoted CSV, so an escaped quote does not hide the newline after it.
+        Rows rows = read(SelectRecordReader.forJson(NO_VISITOR),
+                records("{\"a\":\"say \\\"hi"), stats(), records("\"}\n{\"b\":1}\n"));
+
+        assertEquals(List.of("{\"a\":\"say \\\"hi\"}", "{\"b\":1}"), rows.values);
+        assertEquals(1, rows.completions);
+    }
+
+    private static SelectObjectContentEventStream records(String payload) {
+        return SelectObjectContentEventStream.recordsBuilder().payload(SdkBytes.fromUtf8String(payload)).build();
+    }
+
+    private static SelectObjectContentEventStream stats() {
+        return SelectObjectContentEventStream.statsBuilder().build();
+    }
+
+    /**
+     * Streams the events through the reader and requests the rows one at a time.
+     */
+    private static Rows read(SelectRecordReader reader, SelectObjectContentEventStream... events) {
+        Rows rows = new Rows();
+        reader.onEventStream(new EventPublisher(List.of(events)));
+        reader.subscribe(rows);
+        return rows;
+    }
+
+    private static final class Rows implements Flow.Subscriber<ByteBuffer> {
+        private final List<String> values = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private int completions;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer row) {
+            values.add(SelectRecordReader.toUtf8String(row));
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+    }
+
+    /**
+     * Publishes a fixed list of events, only as many as have been requested.
+     * Requests made while an event is being delivered are served after it returns.
+     */
+    private static final class EventPublisher implements SdkPublisher<SelectObjectContentEventStream> {
+        private final List<SelectObjectContentEventStream> events;
+
+        private EventPublisher(List<SelectObjectContentEventStream> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super SelectObjectContentEventStream> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private long demand;
+                private int next;
+                private boolean emitting;
+                private boolean cancelled;
+
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < events.size() && !cancelled) {
+                        demand--;
+                        subscriber.onNext(events.get(next++));
+                    }
+                    if (next == events.size() && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
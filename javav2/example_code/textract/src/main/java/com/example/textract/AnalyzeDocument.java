@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -85,6 +86,16 @@ public class AnalyzeDocument {
                 System.out.println("The block type is " + block.blockType().toString());
             }
 
+            // Rebuild the key-value pairs and tables from the blocks and print them as CSV.
+            StringWriter fields = new StringWriter();
+            StringWriter tables = new StringWriter();
+            DocumentReconstructor reconstructor = new DocumentReconstructor(new CsvTableWriter(tables, fields));
+            reconstructor.reconstructPage(new BlockIndex(docInfo));
+            System.out.println("Key-value pairs:");
+            System.out.println(fields);
+            System.out.println("The number of tables is " + reconstructor.tablesSeen());
+            System.out.println(tables);
+
         } catch (TextractException | FileNotFoundException e) {
 
             System.err.println(e.getMessage());
@@ -0,0 +1,115 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes reconstructed tables and form fields as CSV, one row at a time.
+ *
+ * Tables are written to one writer, separated by a blank line. Form fields are
+ * written to a second writer as page,key,value records. Values are quoted as
+ * described in RFC 4180.
+ */
+public class CsvTableWriter implements ReconstructionListener, AutoCloseable {
+    private final Writer tables;
+    private final Writer fields;
+    private boolean firstTable = true;
+    private long rowsWritten;
+
+    public CsvTableWriter(Writer tables, Writer fields) {
+        this.tables = tables;
+        this.fields = fields;
+    }
+
+    @Override
+    public void startTable(int page, int tableNumber, int columnCount) {
+        if (!firstTable) {
+            write(tables, "\r\n");
+        }
+        firstTable = false;
+    }
+
+    @Override
+    public void row(int rowIndex, String[] cells) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendValue(line, cells[i]);
+        }
+        line.append("\r\n");
+        write(tables, line);
+        rowsWritten++;
+    }
+
+    @Override
+    public void field(int page, String key, String value) {
+        StringBuilder line = new StringBuilder();
+        line.append(page).append(',');
+        appendValue(line, key);
+        line.append(',');
+        appendValue(line, value);
+        line.append("\r\n");
+        write(fields, line);
+    }
+
+    /**
+     * Returns the number of table rows written so far.
+     */
+    public long rowsWritten() {
+        return rowsWritten;
+    }
+
+    public void flush() {
+        try {
+            tables.flush();
+            fields.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            tables.close();
+            if (fields != tables) {
+                fields.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendValue(StringBuilder line, String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private static void write(Writer writer, CharSequence text) {
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
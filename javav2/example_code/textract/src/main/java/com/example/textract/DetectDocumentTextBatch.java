@@ -0,0 +1,397 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.textract.TextractAsyncClient;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import software.amazon.awssdk.services.textract.model.DetectDocumentTextRequest;
+import software.amazon.awssdk.services.textract.model.DetectDocumentTextResponse;
+import software.amazon.awssdk.services.textract.model.Document;
+import software.amazon.awssdk.services.textract.model.S3Object;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Detects the text of many single-page images with DetectDocumentText.
+ *
+ * The pages come from an Amazon S3 prefix or a local directory and are sent to
+ * Amazon Textract through a TextractAsyncClient. The number of requests in
+ * flight is bounded, and requests are started no faster than a configured rate
+ * so that the account's transactions-per-second quota is not exceeded. Results
+ * are handed to the caller in page order, on the calling thread, and only a
+ * bounded window of out-of-order results is kept in memory.
+ *
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class DetectDocumentTextBatch {
+    private static final List<String> IMAGE_EXTENSIONS = List.of(".png", ".jpg", ".jpeg", ".tif", ".tiff", ".pdf");
+
+    // How many completed pages may wait for an earlier page, per request in flight.
+    private static final int REORDER_FACTOR = 4;
+
+    private final TextractAsyncClient textractAsyncClient;
+    private final int maxConcurrency;
+    private final long intervalNanos;
+    private long nextStart;
+
+    /**
+     * @param textractAsyncClient the client used to call DetectDocumentText
+     * @param maxConcurrency      the maximum number of requests in flight
+     * @param requestsPerSecond   the maximum rate at which requests are started
+     */
+    public DetectDocumentTextBatch(TextractAsyncClient textractAsyncClient, int maxConcurrency,
+            double requestsPerSecond) {
+        if (maxConcurrency < 1 || requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("maxConcurrency and requestsPerSecond must be positive");
+        }
+
+        this.textractAsyncClient = textractAsyncClient;
+        this.maxConcurrency = maxConcurrency;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final String usage = """
+
+                Usage:
+                    <source> <maxConcurrency> <requestsPerSecond>\s
+
+                Where:
+                    source - An S3 prefix (for example, s3://amzn-s3-demo-bucket/scans/) or a local directory of page images.\s
+                    maxConcurrency - The maximum number of DetectDocumentText requests in flight (for example, 16).\s
+                    requestsPerSecond - The DetectDocumentText quota of your account (for example, 10).\s
+                """;
+
+        if (args.length != 3) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String source = args[0];
+        Region region = Region.US_WEST_2;
+        TextractAsyncClient textractAsyncClient = TextractAsyncClient.builder()
+                .region(region)
+                .build();
+
+        List<Page> pages;
+        if (source.startsWith("s3://")) {
+            String location = source.substring("s3://".length());
+            int slash = location.indexOf('/');
+            String bucketName = slash < 0 ? location : location.substring(0, slash);
+            String prefix = slash < 0 ? "" : location.substring(slash + 1);
+            try (S3Client s3Client = S3Client.builder().region(region).build()) {
+                pages = fromS3Prefix(s3Client, bucketName, prefix);
+            }
+        } else {
+            pages = fromDirectory(Paths.get(source));
+        }
+
+        DetectDocumentTextBatch batch = new DetectDocumentTextBatch(textractAsyncClient, Integer.parseInt(args[1]),
+                Double.parseDouble(args[2]));
+
+        long start = System.nanoTime();
+        int failed = batch.detectText(pages, result -> {
+            if (result.error() != null) {
+                System.err.println("Page " + result.pageNumber() + " (" + result.name() + ") failed: "
+                        + result.error().getMessage());
+            } else {
+                long lines = result.response().blocks().stream()
+                        .filter(block -> block.blockType() == BlockType.LINE)
+                        .count();
+                System.out.println("Page " + result.pageNumber() + " (" + result.name() + ") has " + lines + " lines");
+            }
+        });
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Processed %d pages (%d failed) at %.1f pages/sec%n", pages.size(), failed,
+                pages.size() / seconds);
+        textractAsyncClient.close();
+    }
+
+    /**
+     * Lists the page images under an S3 prefix in natural key order, so page2
+     * comes before page10. Amazon Textract reads the images from Amazon S3
+     * directly, so they are not downloaded.
+     */
+    public static List<Page> fromS3Prefix(S3Client s3Client, String bucketName, String prefix) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
+
+        return s3Client.listObjectsV2Paginator(listRequest).contents().stream()
+                .map(software.amazon.awssdk.services.s3.model.S3Object::key)
+                .filter(DetectDocumentTextBatch::isImage)
+                .sorted(DetectDocumentTextBatch::compareNaturally)
+                .map(key -> new Page(key, () -> Document.builder()
+                        .s3Object(S3Object.builder().bucket(bucketName).name(key).build())
+                        .build()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lists the page images in a local directory in natural file name order. Each
+     * image is read only when its request is about to be sent.
+     */
+    public static List<Page> fromDirectory(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> Files.isRegularFile(file) && isImage(file.getFileName().toString()))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString(),
+                            DetectDocumentTextBatch::compareNaturally))
+                    .map(file -> new Page(file.getFileName().toString(), () -> Document.builder()
+                            .bytes(readBytes(file))
+                            .build()))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Detects the text of every page and passes the results to the consumer in
+     * page order. The consumer is called on the calling thread, between
+     * requests, so a slow consumer never holds up the client's completion
+     * threads.
+     *
+     * @return the number of pages that failed
+     */
+    public int detectText(List<Page> pages, Consumer<PageText> consumer) throws InterruptedException {
+        int windowSize = maxConcurrency * REORDER_FACTOR;
+        BlockingQueue<PageText> completed = new LinkedBlockingQueue<>();
+        OrderedEmitter emitter = new OrderedEmitter(consumer);
+        int received = 0;
+
+        for (int i = 0; i < pages.size(); i++) {
+            // Hand finished pages to the consumer until a request slot is free and
+            // the next page fits in the window of pages not yet consumed.
+            while (i - received >= maxConcurrency || i - emitter.emitted() >= windowSize) {
+                emitter.add(completed.take());
+                received++;
+            }
+            PageText ready;
+            while ((ready = completed.poll()) != null) {
+                emitter.add(ready);
+                received++;
+            }
+            awaitRate();
+
+            int pageNumber = i + 1;
+            Page page = pages.get(i);
+            CompletableFuture<DetectDocumentTextResponse> future;
+            try {
+                DetectDocumentTextRequest request = DetectDocumentTextRequest.builder()
+                        .document(page.document().get())
+                        .build();
+                future = textractAsyncClient.detectDocumentText(request);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((response, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                completed.add(new PageText(pageNumber, page.name(), response, cause));
+            });
+        }
+
+        while (received < pages.size()) {
+            emitter.add(completed.take());
+            received++;
+        }
+        return emitter.failed();
+    }
+
+    private synchronized void awaitRate() throws InterruptedException {
+        long now = System.nanoTime();
+        if (nextStart > now) {
+            TimeUnit.NANOSECONDS.sleep(nextStart - now);
+            now = nextStart;
+        }
+        nextStart = Math.max(nextStart, now) + intervalNanos;
+    }
+
+    /**
+     * Compares names so that runs of digits are ordered by their numeric value.
+     */
+    static int compareNaturally(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            if (isDigit(a.charAt(i)) && isDigit(b.charAt(j))) {
+                int endA = digitsEnd(a, i);
+                int endB = digitsEnd(b, j);
+                while (i < endA - 1 && a.charAt(i) == '0') {
+                    i++;
+                }
+                while (j < endB - 1 && b.charAt(j) == '0') {
+                    j++;
+                }
+                // Without leading zeros, the longer run of digits is the larger number.
+                if (endA - i != endB - j) {
+                    return Integer.compare(endA - i, endB - j);
+                }
+                for (; i < endA; i++, j++) {
+                    if (a.charAt(i) != b.charAt(j)) {
+                        return Character.compare(a.charAt(i), b.charAt(j));
+                    }
+                }
+            } else {
+                if (a.charAt(i) != b.charAt(j)) {
+                    return Character.compare(a.charAt(i), b.charAt(j));
+                }
+                i++;
+                j++;
+            }
+        }
+        int remaining = Integer.compare(a.length() - i, b.length() - j);
+        // Names such as page01 and page1 are only equal numerically, so order them as text.
+        return remaining != 0 ? remaining : a.compareTo(b);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digitsEnd(String name, int start) {
+        int end = start;
+        while (end < name.length() && isDigit(name.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isImage(String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        return IMAGE_EXTENSIONS.stream().anyMatch(lowerCase::endsWith);
+    }
+
+    private static SdkBytes readBytes(Path file) {
+        try {
+            return SdkBytes.fromByteArray(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases results in page order, buffering pages that finish early. It is
+     * only used by the thread that calls detectText.
+     */
+    private static final class OrderedEmitter {
+        private final Consumer<PageText> consumer;
+        private final Map<Integer, PageText> waiting = new HashMap<>();
+        private int nextPage = 1;
+        private int failed;
+
+        private OrderedEmitter(Consumer<PageText> consumer) {
+            this.consumer = consumer;
+        }
+
+        private void add(PageText result) {
+            waiting.put(result.pageNumber(), result);
+            PageText next;
+            while ((next = waiting.remove(nextPage)) != null) {
+                if (next.error() != null) {
+                    failed++;
+                }
+                try {
+                    consumer.accept(next);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to handle page " + nextPage + ": " + e.getMessage());
+                }
+                nextPage++;
+            }
+        }
+
+        private int emitted() {
+            return nextPage - 1;
+        }
+
+        private int failed() {
+            return failed;
+        }
+    }
+
+    /**
+     * A page image and a way to build the Textract Document that refers to it.
+     */
+    public static final class Page {
+        private final String name;
+        private final Supplier<Document> document;
+
+        public Page(String name, Supplier<Document> document) {
+            this.name = name;
+            this.document = document;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Supplier<Document> document() {
+            return document;
+        }
+    }
+
+    /**
+     * The DetectDocumentText result for one page, or the error that prevented it.
+     */
+    public static final class PageText {
+        private final int pageNumber;
+        private final String name;
+        private final DetectDocumentTextResponse response;
+        private final Throwable error;
+
+        PageText(int pageNumber, String name, DetectDocumentTextResponse response, Throwable error) {
+            this.pageNumber = pageNumber;
+            this.name = name;
+            this.response = response;
+            this.error = error;
+        }
+
+        public int pageNumber() {
+            return pageNumber;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DetectDocumentTextResponse response() {
+            return response;
+        }
+
+        public Throwable error() {
+            return error;
+        }
+    }
+}
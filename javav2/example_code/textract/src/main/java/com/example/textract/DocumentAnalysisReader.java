@@ -0,0 +1,156 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads every block of a completed document analysis job by following NextToken.
+ *
+ * Only the page of results that is being consumed and the page that is being
+ * prefetched are held in memory, so a document with thousands of pages is read
+ * in constant memory. The next page is requested in the background as soon as
+ * the current one arrives, so the caller rarely waits on the network.
+ *
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class DocumentAnalysisReader implements Iterator<Block>, AutoCloseable {
+    // The largest page that GetDocumentAnalysis returns.
+    private static final int MAX_RESULTS = 1000;
+
+    private final TextractClient textractClient;
+    private final String jobId;
+    private final int maxResults;
+    private final ExecutorService prefetcher;
+    private Iterator<Block> current = Collections.emptyIterator();
+    private CompletableFuture<GetDocumentAnalysisResponse> next;
+    private int pagesRead;
+
+    public DocumentAnalysisReader(TextractClient textractClient, String jobId) {
+        this(textractClient, jobId, MAX_RESULTS);
+    }
+
+    /**
+     * @param textractClient the client used to get the results
+     * @param jobId          the ID of a job that has finished successfully
+     * @param maxResults     the number of blocks to request per page, up to 1000
+     */
+    public DocumentAnalysisReader(TextractClient textractClient, String jobId, int maxResults) {
+        if (maxResults < 1 || maxResults > MAX_RESULTS) {
+            throw new IllegalArgumentException("maxResults must be between 1 and " + MAX_RESULTS);
+        }
+
+        this.textractClient = textractClient;
+        this.jobId = jobId;
+        this.maxResults = maxResults;
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "textract-result-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.next = fetch(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (next == null) {
+                return false;
+            }
+            advance();
+        }
+        return true;
+    }
+
+    @Override
+    public Block next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Returns the remaining blocks as a sequential stream.
+     */
+    public Stream<Block> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * Returns the number of result pages that have been consumed so far.
+     */
+    public int pagesRead() {
+        return pagesRead;
+    }
+
+    @Override
+    public void close() {
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+        current = Collections.emptyIterator();
+        prefetcher.shutdownNow();
+    }
+
+    private void advance() {
+        GetDocumentAnalysisResponse response;
+        try {
+            response = next.join();
+        } catch (CompletionException e) {
+            close();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        if (response.jobStatus() != JobStatus.SUCCEEDED && response.jobStatus() != JobStatus.PARTIAL_SUCCESS) {
+            close();
+            throw new IllegalStateException("Job " + jobId + " has status " + response.jobStatus());
+        }
+
+        // Request the following page before handing this one to the caller.
+        String nextToken = response.nextToken();
+        next = nextToken == null ? null : fetch(nextToken);
+        if (next == null) {
+            prefetcher.shutdown();
+        }
+
+        current = response.blocks().iterator();
+        pagesRead++;
+    }
+
+    private CompletableFuture<GetDocumentAnalysisResponse> fetch(String nextToken) {
+        GetDocumentAnalysisRequest request = GetDocumentAnalysisRequest.builder()
+                .jobId(jobId)
+                .maxResults(maxResults)
+                .nextToken(nextToken)
+                .build();
+
+        return CompletableFuture.supplyAsync(() -> textractClient.getDocumentAnalysis(request), prefetcher);
+    }
+}
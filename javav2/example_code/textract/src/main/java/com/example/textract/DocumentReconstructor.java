@@ -0,0 +1,163 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.BlockType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rebuilds tables and form key-value pairs from the blocks returned by the
+ * AnalyzeDocument and GetDocumentAnalysis operations.
+ *
+ * Tables and key-value pairs never cross a page boundary, so blocks are
+ * indexed and reconstructed one page at a time. Combined with
+ * {@link DocumentAnalysisReader}, this keeps memory use proportional to the
+ * largest page rather than to the whole document.
+ */
+public class DocumentReconstructor {
+    private final ReconstructionListener listener;
+    private int tablesSeen;
+    private int pagesSeen;
+
+    public DocumentReconstructor(ReconstructionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reconstructs every page of a document. The blocks must be grouped by
+     * page, which is the order in which Amazon Textract returns them.
+     */
+    public void reconstruct(Iterator<Block> blocks) {
+        List<Block> page = new ArrayList<>();
+        Integer pageNumber = null;
+        while (blocks.hasNext()) {
+            Block block = blocks.next();
+            if (!page.isEmpty() && !Objects.equals(block.page(), pageNumber)) {
+                reconstructPage(new BlockIndex(page));
+                page.clear();
+            }
+            pageNumber = block.page();
+            page.add(block);
+        }
+
+        if (!page.isEmpty()) {
+            reconstructPage(new BlockIndex(page));
+        }
+    }
+
+    /**
+     * Reconstructs the tables and key-value pairs of one page of blocks.
+     */
+    public void reconstructPage(BlockIndex index) {
+        pagesSeen++;
+        for (int i = 0; i < index.size(); i++) {
+            if (index.is(i, BlockType.TABLE)) {
+                emitTable(index, i);
+            } else if (index.isKey(i)) {
+                int value = index.value(i);
+                listener.field(pageOf(index.block(i)), index.text(i), value < 0 ? "" : index.text(value));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tables that have been reconstructed so far.
+     */
+    public int tablesSeen() {
+        return tablesSeen;
+    }
+
+    /**
+     * Returns the number of pages that have been reconstructed so far.
+     */
+    public int pagesSeen() {
+        return pagesSeen;
+    }
+
+    private void emitTable(BlockIndex index, int table) {
+        int rows = 0;
+        int columns = 0;
+        int childCount = index.childCount(table);
+        for (int n = 0; n < childCount; n++) {
+            Block cell = index.block(index.child(table, n));
+            if (cell.blockType() == BlockType.CELL) {
+                rows = Math.max(rows, cell.rowIndex() + span(cell.rowSpan()) - 1);
+                columns = Math.max(columns, cell.columnIndex() + span(cell.columnSpan()) - 1);
+            }
+        }
+
+        // Place each cell in a row-major grid of block offsets.
+        int[] grid = new int[rows * columns];
+        Arrays.fill(grid, -1);
+        for (int n = 0; n < childCount; n++) {
+            int offset = index.child(table, n);
+            Block cell = index.block(offset);
+            if (cell.blockType() == BlockType.CELL) {
+                grid[(cell.rowIndex() - 1) * columns + cell.columnIndex() - 1] = offset;
+            }
+        }
+
+        // A merged cell's text is repeated in every position it spans, so each
+        // row can be read on its own.
+        String[] mergedText = null;
+        for (int merged : index.mergedCells(table)) {
+            Block mergedCell = index.block(merged);
+            if (mergedCell.blockType() != BlockType.MERGED_CELL) {
+                continue;
+            }
+            if (mergedText == null) {
+                mergedText = new String[rows * columns];
+            }
+
+            StringBuilder text = new StringBuilder();
+            for (int cell : index.children(merged)) {
+                String cellText = index.text(cell);
+                if (!cellText.isEmpty()) {
+                    if (text.length() > 0) {
+                        text.append(' ');
+                    }
+                    text.append(cellText);
+                }
+            }
+
+            int lastRow = mergedCell.rowIndex() + span(mergedCell.rowSpan()) - 1;
+            int lastColumn = mergedCell.columnIndex() + span(mergedCell.columnSpan()) - 1;
+            for (int r = mergedCell.rowIndex(); r <= lastRow; r++) {
+                for (int c = mergedCell.columnIndex(); c <= lastColumn; c++) {
+                    mergedText[(r - 1) * columns + c - 1] = text.toString();
+                }
+            }
+        }
+
+        tablesSeen++;
+        listener.startTable(pageOf(index.block(table)), tablesSeen, columns);
+        String[] cells = new String[columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int position = r * columns + c;
+                if (mergedText != null && mergedText[position] != null) {
+                    cells[c] = mergedText[position];
+                } else {
+                    cells[c] = grid[position] < 0 ? "" : index.text(grid[position]);
+                }
+            }
+            listener.row(r + 1, cells);
+        }
+        listener.endTable();
+    }
+
+    private static int span(Integer span) {
+        return span == null ? 1 : span;
+    }
+
+    private static int pageOf(Block block) {
+        // Synchronous AnalyzeDocument results can omit the page number.
+        return block.page() == null ? 1 : block.page();
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+/**
+ * Receives the tables and form fields that {@link DocumentReconstructor} rebuilds
+ * from Amazon Textract blocks. Rows are delivered one at a time, in order, so an
+ * implementation can write them out without holding the whole document.
+ */
+public interface ReconstructionListener {
+
+    /**
+     * Called before the first row of a table.
+     *
+     * @param page        the page that contains the table
+     * @param tableNumber the 1-based number of the table within the document
+     * @param columnCount the number of cells in each row
+     */
+    default void startTable(int page, int tableNumber, int columnCount) {
+    }
+
+    /**
+     * Called once for each row of the current table. The cells array is reused
+     * between calls, so copy it if it must be kept.
+     *
+     * @param rowIndex the 1-based row index
+     * @param cells    the text of each cell in the row
+     */
+    default void row(int rowIndex, String[] cells) {
+    }
+
+    /**
+     * Called after the last row of a table.
+     */
+    default void endTable() {
+    }
+
+    /**
+     * Called once for each key-value pair of a form.
+     */
+    default void field(int page, String key, String value) {
+    }
+}
@@ -6,17 +6,23 @@ package com.example.textract;
 // snippet-start:[textract.java2._start_doc_analysis.main]
 // snippet-start:[textract.java2._start_doc_analysis.import]
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.textract.model.S3Object;
 import software.amazon.awssdk.services.textract.TextractClient;
 import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisRequest;
 import software.amazon.awssdk.services.textract.model.DocumentLocation;
 import software.amazon.awssdk.services.textract.model.TextractException;
 import software.amazon.awssdk.services.textract.model.StartDocumentAnalysisResponse;
-import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
-import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisResponse;
 import software.amazon.awssdk.services.textract.model.FeatureType;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import software.amazon.awssdk.services.textract.model.NotificationChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 // snippet-end:[textract.java2._start_doc_analysis.import]
 
 /**
@@ -32,14 +38,17 @@ public class StartDocumentAnalysis {
         final String usage = """
 
                 Usage:
-                    <bucketName> <docName>\s
+                    <bucketName> <docName> [<snsTopicArn> <roleArn> <queueUrl>]\s
 
                 Where:
                     bucketName - The name of the Amazon S3 bucket that contains the document.\s
                     docName - The document name (must be an image, for example, book.png).\s
+                    snsTopicArn - (Optional) The Amazon SNS topic that Amazon Textract publishes the job status to.\s
+                    roleArn - (Optional) The IAM role that gives Amazon Textract permission to publish to the topic.\s
+                    queueUrl - (Optional) The Amazon SQS queue that is subscribed to the topic.\s
                 """;
 
-        if (args.length != 2) {
+        if (args.length != 2 && args.length != 5) {
             System.out.println(usage);
             System.exit(1);
         }
@@ -51,14 +60,46 @@ public class StartDocumentAnalysis {
                 .region(region)
                 .build();
 
-        String jobId = startDocAnalysisS3(textractClient, bucketName, docName);
-        System.out.println("Getting results for job " + jobId);
-        String status = getJobResults(textractClient, jobId);
-        System.out.println("The job status is " + status);
+        if (args.length == 2) {
+            String jobId = startDocAnalysisS3(textractClient, bucketName, docName);
+            System.out.println("Getting results for job " + jobId);
+            try (TextractJobWatcher watcher = new TextractJobWatcher(textractClient)) {
+                String status = getJobResults(watcher, jobId);
+                System.out.println("The job status is " + status);
+            }
+            readAllBlocks(textractClient, jobId);
+        } else {
+            NotificationChannel channel = NotificationChannel.builder()
+                    .snsTopicArn(args[2])
+                    .roleArn(args[3])
+                    .build();
+
+            SqsClient sqsClient = SqsClient.builder()
+                    .region(region)
+                    .build();
+
+            String jobId = startDocAnalysisS3(textractClient, bucketName, docName, channel);
+            System.out.println("Getting results for job " + jobId);
+            try (TextractJobWatcher watcher = new TextractJobWatcher(textractClient, sqsClient, args[4])) {
+                String status = getJobResults(watcher, jobId);
+                System.out.println("The job status is " + status);
+            }
+            readAllBlocks(textractClient, jobId);
+            sqsClient.close();
+        }
         textractClient.close();
     }
 
     public static String startDocAnalysisS3(TextractClient textractClient, String bucketName, String docName) {
+        return startDocAnalysisS3(textractClient, bucketName, docName, null);
+    }
+
+    /**
+     * Starts an analysis job. When a notification channel is given, Amazon Textract
+     * publishes the completion status of the job to the channel's Amazon SNS topic.
+     */
+    public static String startDocAnalysisS3(TextractClient textractClient, String bucketName, String docName,
+            NotificationChannel notificationChannel) {
         try {
             List<FeatureType> myList = new ArrayList<>();
             myList.add(FeatureType.TABLES);
@@ -76,6 +117,7 @@ public class StartDocumentAnalysis {
             StartDocumentAnalysisRequest documentAnalysisRequest = StartDocumentAnalysisRequest.builder()
                     .documentLocation(location)
                     .featureTypes(myList)
+                    .notificationChannel(notificationChannel)
                     .build();
 
             StartDocumentAnalysisResponse response = textractClient.startDocumentAnalysis(documentAnalysisRequest);
@@ -91,37 +133,38 @@ public class StartDocumentAnalysis {
         return "";
     }
 
-    private static String getJobResults(TextractClient textractClient, String jobId) {
-        boolean finished = false;
-        int index = 0;
-        String status = "";
-
+    private static String getJobResults(TextractJobWatcher watcher, String jobId) {
         try {
-            while (!finished) {
-                GetDocumentAnalysisRequest analysisRequest = GetDocumentAnalysisRequest.builder()
-                        .jobId(jobId)
-                        .maxResults(1000)
-                        .build();
-
-                GetDocumentAnalysisResponse response = textractClient.getDocumentAnalysis(analysisRequest);
-                status = response.jobStatus().toString();
-
-                if (status.compareTo("SUCCEEDED") == 0)
-                    finished = true;
-                else {
-                    System.out.println(index + " status is: " + status);
-                    Thread.sleep(1000);
-                }
-                index++;
-            }
-
-            return status;
+            // The watcher completes the job from its notification, or by polling with backoff.
+            JobStatus status = watcher.watch(jobId).join();
+            return status.toString();
 
-        } catch (InterruptedException e) {
+        } catch (CompletionException | CancellationException e) {
             System.out.println(e.getMessage());
             System.exit(1);
         }
         return "";
     }
+
+    /**
+     * Reads every page of results for the job. The reader follows NextToken, so
+     * large documents are not truncated after the first 1,000 blocks.
+     */
+    public static void readAllBlocks(TextractClient textractClient, String jobId) {
+        Map<String, Integer> blockCounts = new TreeMap<>();
+        try (DocumentAnalysisReader reader = new DocumentAnalysisReader(textractClient, jobId)) {
+            while (reader.hasNext()) {
+                Block block = reader.next();
+                blockCounts.merge(block.blockType().toString(), 1, Integer::sum);
+            }
+            System.out.println("Read " + reader.pagesRead() + " page(s) of results");
+
+        } catch (TextractException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        blockCounts.forEach((type, count) -> System.out.println("The number of " + type + " blocks is " + count));
+    }
 }
 // snippet-end:[textract.java2._start_doc_analysis.main]
\ No newline at end of file
@@ -0,0 +1,323 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.textract.TextractClient;
+import software.amazon.awssdk.services.textract.model.GetDocumentAnalysisRequest;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tracks Amazon Textract asynchronous jobs until they reach a terminal status.
+ *
+ * When a queue URL is supplied, the watcher long-polls the Amazon SQS queue that is
+ * subscribed to the job's NotificationChannel topic and completes jobs as their
+ * notifications arrive. Every job is also polled with GetDocumentAnalysis on an
+ * exponential backoff schedule, so a lost or misrouted notification only delays the
+ * result instead of hanging the caller. All jobs share one small scheduled thread
+ * pool, so thousands of job IDs can be tracked at once.
+ *
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class TextractJobWatcher implements AutoCloseable {
+    // Polling starts quickly when there is no queue and backs off from there.
+    private static final Duration INITIAL_POLL_DELAY = Duration.ofSeconds(1);
+
+    // With a queue, polling is only a safety net, so it starts much later.
+    private static final Duration INITIAL_FALLBACK_DELAY = Duration.ofSeconds(30);
+    private static final Duration MAX_POLL_DELAY = Duration.ofMinutes(2);
+    private static final double BACKOFF_MULTIPLIER = 2.0;
+    private static final int WAIT_TIME_SECONDS = 20;
+    private static final int MAX_MESSAGES = 10;
+
+    private final Function<String, JobStatus> statusLookup;
+    private final SqsClient sqsClient;
+    private final String queueUrl;
+    private final boolean listening;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, TrackedJob> jobs = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a watcher that only polls GetDocumentAnalysis with adaptive backoff.
+     */
+    public TextractJobWatcher(TextractClient textractClient) {
+        this(textractClient, null, null);
+    }
+
+    /**
+     * Creates a watcher that completes jobs from the notifications in the given
+     * queue and falls back to polling GetDocumentAnalysis.
+     */
+    public TextractJobWatcher(TextractClient textractClient, SqsClient sqsClient, String queueUrl) {
+        this(jobId -> getAnalysisStatus(textractClient, jobId), sqsClient, queueUrl, 2);
+    }
+
+    /**
+     * Creates a watcher with a custom status lookup, which makes it possible to
+     * track other Textract job types or to run against a local SQS stand-in.
+     *
+     * @param statusLookup returns the current status of a job ID
+     * @param sqsClient    the client used to read notifications, or null to poll only
+     * @param queueUrl     the queue subscribed to the notification topic, or null to poll only
+     * @param pollThreads  the number of threads used for fallback polling
+     */
+    public TextractJobWatcher(Function<String, JobStatus> statusLookup, SqsClient sqsClient, String queueUrl,
+            int pollThreads) {
+        if (pollThreads < 1) {
+            throw new IllegalArgumentException("pollThreads must be at least 1");
+        }
+
+        this.statusLookup = statusLookup;
+        this.sqsClient = sqsClient;
+        this.queueUrl = queueUrl;
+        this.listening = sqsClient != null && queueUrl != null;
+        this.scheduler = Executors.newScheduledThreadPool(listening ? pollThreads + 1 : pollThreads, runnable -> {
+            Thread thread = new Thread(runnable, "textract-job-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (listening) {
+            scheduler.execute(this::receiveNotifications);
+        }
+    }
+
+    /**
+     * Starts tracking a job.
+     *
+     * @param jobId the job ID returned by a Start* operation
+     * @return a future that completes with the terminal status of the job
+     */
+    public CompletableFuture<JobStatus> watch(String jobId) {
+        if (!running) {
+            throw new IllegalStateException("The watcher is closed");
+        }
+
+        TrackedJob job = jobs.computeIfAbsent(jobId, TrackedJob::new);
+        synchronized (this) {
+            if (job.pending == null) {
+                schedulePoll(job, listening ? INITIAL_FALLBACK_DELAY : INITIAL_POLL_DELAY);
+            }
+        }
+        return job.result;
+    }
+
+    /**
+     * Returns the number of jobs that have not reached a terminal status yet.
+     */
+    public int pendingJobs() {
+        return jobs.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        scheduler.shutdownNow();
+        for (TrackedJob job : jobs.values()) {
+            job.result.cancel(false);
+        }
+        jobs.clear();
+    }
+
+    private static JobStatus getAnalysisStatus(TextractClient textractClient, String jobId) {
+        // Only the status is needed here, so keep the response as small as possible.
+        GetDocumentAnalysisRequest request = GetDocumentAnalysisRequest.builder()
+                .jobId(jobId)
+                .maxResults(1)
+                .build();
+
+        return textractClient.getDocumentAnalysis(request).jobStatus();
+    }
+
+    private synchronized void schedulePoll(TrackedJob job, Duration delay) {
+        if (!running || job.result.isDone()) {
+            return;
+        }
+
+        // Add up to 20% jitter so that jobs started together do not poll together.
+        long delayMillis = delay.toMillis();
+        long jitter = ThreadLocalRandom.current().nextLong(delayMillis / 5 + 1);
+        job.nextDelay = delay;
+        job.pending = scheduler.schedule(() -> poll(job), delayMillis + jitter, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(TrackedJob job) {
+        try {
+            JobStatus status = statusLookup.apply(job.jobId);
+            if (isTerminal(status)) {
+                complete(job.jobId, status);
+                return;
+            }
+        } catch (SdkException e) {
+            if (!e.retryable()) {
+                fail(job.jobId, e);
+                return;
+            }
+        } catch (RuntimeException e) {
+            fail(job.jobId, e);
+            return;
+        }
+
+        long next = (long) (job.nextDelay.toMillis() * BACKOFF_MULTIPLIER);
+        schedulePoll(job, Duration.ofMillis(Math.min(next, MAX_POLL_DELAY.toMillis())));
+    }
+
+    private void receiveNotifications() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                ReceiveMessageResponse response = sqsClient.receiveMessage(b -> b
+                        .queueUrl(queueUrl)
+                        .maxNumberOfMessages(MAX_MESSAGES)
+                        .waitTimeSeconds(WAIT_TIME_SECONDS));
+
+                List<DeleteMessageBatchRequestEntry> handled = new ArrayList<>();
+                for (Message message : response.messages()) {
+                    boolean tracked;
+                    try {
+                        tracked = handleNotification(message.body());
+                    } catch (RuntimeException e) {
+                        // One malformed message on a shared queue must not stop the receiver.
+                        System.err.println("Ignoring notification " + message.messageId() + ": " + e.getMessage());
+                        tracked = false;
+                    }
+                    if (tracked) {
+                        handled.add(DeleteMessageBatchRequestEntry.builder()
+                                .id(message.messageId())
+                                .receiptHandle(message.receiptHandle())
+                                .build());
+                    }
+                }
+
+                // Messages for jobs that this watcher does not track are left in the
+                // queue so that another consumer can pick them up.
+                if (!handled.isEmpty()) {
+                    sqsClient.deleteMessageBatch(b -> b
+                            .queueUrl(queueUrl)
+                            .entries(handled));
+                }
+
+            } catch (AbortedException e) {
+                return;
+            } catch (SdkException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Failed to receive Textract notifications: " + e.getMessage());
+                sleepQuietly(INITIAL_POLL_DELAY);
+            }
+        }
+    }
+
+    /**
+     * Completes the job named in a notification body.
+     *
+     * @return true if the message referred to a tracked job and can be deleted
+     */
+    private boolean handleNotification(String body) {
+        JsonObject notification;
+        try {
+            notification = JsonParser.parseString(body).getAsJsonObject();
+
+            // Unless raw message delivery is enabled, SNS wraps the payload in an envelope.
+            JsonElement message = notification.get("Message");
+            if (message != null && message.isJsonPrimitive()) {
+                notification = JsonParser.parseString(message.getAsString()).getAsJsonObject();
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            return false;
+        }
+
+        JsonElement jobId = notification.get("JobId");
+        JsonElement status = notification.get("Status");
+        if (jobId == null || !jobId.isJsonPrimitive() || status == null || !status.isJsonPrimitive()
+                || !jobs.containsKey(jobId.getAsString())) {
+            return false;
+        }
+
+        // Textract reports ERROR for jobs that could not be started or processed.
+        String statusValue = status.getAsString();
+        JobStatus jobStatus = "ERROR".equals(statusValue) ? JobStatus.FAILED : JobStatus.fromValue(statusValue);
+        if (!isTerminal(jobStatus)) {
+            // The job stays tracked, and polling finds its final status.
+            System.err.println("Ignoring status " + statusValue + " for job " + jobId.getAsString());
+            return true;
+        }
+        complete(jobId.getAsString(), jobStatus);
+        return true;
+    }
+
+    private void complete(String jobId, JobStatus status) {
+        TrackedJob job = jobs.remove(jobId);
+        if (job != null) {
+            cancelPending(job);
+            job.result.complete(status);
+        }
+    }
+
+    private void fail(String jobId, Throwable cause) {
+        TrackedJob job = jobs.remove(jobId);
+        if (job != null) {
+            cancelPending(job);
+            job.result.completeExceptionally(cause);
+        }
+    }
+
+    private synchronized void cancelPending(TrackedJob job) {
+        if (job.pending != null) {
+            job.pending.cancel(false);
+        }
+    }
+
+    private static boolean isTerminal(JobStatus status) {
+        return status == JobStatus.SUCCEEDED
+                || status == JobStatus.FAILED
+                || status == JobStatus.PARTIAL_SUCCESS;
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class TrackedJob {
+        private final String jobId;
+        private final CompletableFuture<JobStatus> result = new CompletableFuture<>();
+        private Duration nextDelay;
+        private ScheduledFuture<?> pending;
+
+        private TrackedJob(String jobId) {
+            this.jobId = jobId;
+        }
+    }
+}
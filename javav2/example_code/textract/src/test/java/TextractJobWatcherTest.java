@@ -0,0 +1,77 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+import com.example.textract.TextractJobWatcher;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.textract.model.JobStatus;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * These tests run against a local SQS stand-in such as ElasticMQ or LocalStack
+ * instead of Amazon Textract. Set the sqsEndpoint system property if the
+ * stand-in does not listen on http://localhost:9324.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class TextractJobWatcherTest {
+    private static SqsClient sqsClient;
+    private static String queueUrl = "";
+
+    @BeforeAll
+    public static void setUp() {
+        sqsClient = SqsClient.builder()
+                .endpointOverride(URI.create(System.getProperty("sqsEndpoint", "http://localhost:9324")))
+                .region(Region.US_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("x", "x")))
+                .build();
+
+        queueUrl = sqsClient.createQueue(b -> b.queueName("textract-job-watcher-test")).queueUrl();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        sqsClient.deleteQueue(b -> b.queueUrl(queueUrl));
+        sqsClient.close();
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(1)
+    public void CompletesJobFromNotification() throws Exception {
+        String body = """
+                {"Type":"Notification","Message":"{\\"JobId\\":\\"job-1\\",\\"Status\\":\\"SUCCEEDED\\",\\"API\\":\\"StartDocumentAnalysis\\"}"}
+                """;
+
+        try (TextractJobWatcher watcher = new TextractJobWatcher(jobId -> JobStatus.IN_PROGRESS, sqsClient,
+                queueUrl, 1)) {
+            CompletableFuture<JobStatus> result = watcher.watch("job-1");
+            sqsClient.sendMessage(b -> b.queueUrl(queueUrl).messageBody(body));
+
+            assertEquals(JobStatus.SUCCEEDED, result.get(30, TimeUnit.SECONDS));
+            assertEquals(0, watcher.pendingJobs());
+        }
+        System.out.println("Test 1 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(2)
+    public void CompletesJobByPollingWithoutQueue() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try (TextractJobWatcher watcher = new TextractJobWatcher(
+                jobId -> calls.incrementAndGet() < 3 ? JobStatus.IN_PROGRESS : JobStatus.FAILED, null, null, 1)) {
+            assertEquals(JobStatus.FAILED, watcher.watch("job-2").get(30, TimeUnit.SECONDS));
+            assertTrue(calls.get() >= 3);
+        }
+        System.out.println("Test 2 passed");
+    }
+}
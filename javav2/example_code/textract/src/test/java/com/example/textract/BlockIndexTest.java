@@ -0,0 +1,58 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.BlockType;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the relationships that BlockIndex reads from a recorded AnalyzeDocument response.
+ */
+class BlockIndexTest {
+
+    @Test
+    void keepsEveryParentOfAWord() throws IOException {
+        BlockIndex index = new BlockIndex(ReconstructionBenchmark.readBlocks("/analyze-document-response.json"));
+
+        int words = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (!index.is(i, BlockType.WORD)) {
+                continue;
+            }
+            words++;
+
+            // Each word is a child of its LINE and of the CELL or KEY_VALUE_SET that contains it.
+            int[] parents = index.parents(i);
+            assertEquals(2, parents.length, index.block(i).text());
+            assertTrue(parents[0] < parents[1]);
+            assertTrue(index.is(parents[0], BlockType.LINE));
+            assertTrue(index.is(parents[1], BlockType.CELL) || index.is(parents[1], BlockType.KEY_VALUE_SET));
+            assertEquals(parents[0], index.parent(i));
+        }
+        assertEquals(210, words);
+    }
+
+    @Test
+    void findsTheParentsOfOtherBlocks() throws IOException {
+        BlockIndex index = new BlockIndex(ReconstructionBenchmark.readBlocks("/analyze-document-response.json"));
+
+        for (int i = 0; i < index.size(); i++) {
+            if (index.is(i, BlockType.PAGE)) {
+                assertEquals(-1, index.parent(i));
+                assertArrayEquals(new int[0], index.parents(i));
+            } else if (index.is(i, BlockType.LINE)) {
+                assertTrue(index.is(index.parent(i), BlockType.PAGE));
+                assertEquals(1, index.parents(i).length);
+            } else if (index.is(i, BlockType.CELL)) {
+                assertTrue(index.is(index.parent(i), BlockType.TABLE));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.textract.TextractAsyncClient;
+import software.amazon.awssdk.services.textract.model.DetectDocumentTextRequest;
+import software.amazon.awssdk.services.textract.model.DetectDocumentTextResponse;
+import software.amazon.awssdk.services.textract.model.Document;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs DetectDocumentTextBatch against a stand-in for Amazon Textract that
+ * finishes requests in a random order on its own threads.
+ */
+class DetectDocumentTextBatchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ordersPageNumbersByValue() throws IOException {
+        for (String name : List.of("page10.png", "page2.png", "page1.png", "page02.png", "notes.txt")) {
+            Files.createFile(directory.resolve(name));
+        }
+
+        List<String> names = DetectDocumentTextBatch.fromDirectory(directory).stream()
+                .map(DetectDocumentTextBatch.Page::name)
+                .collect(Collectors.toList());
+        assertEquals(List.of("page1.png", "page02.png", "page2.png", "page10.png"), names);
+        assertTrue(DetectDocumentTextBatch.compareNaturally("scan-9-b", "scan-10-a") < 0);
+        assertTrue(DetectDocumentTextBatch.compareNaturally("scan-10", "scan-10-a") < 0);
+    }
+
+    @Test
+    void handsResultsToTheCallingThreadInPageOrder() throws InterruptedException {
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        TextractAsyncClient textract = new TextractAsyncClient() {
+            @Override
+            public CompletableFuture<DetectDocumentTextResponse> detectDocumentText(DetectDocumentTextRequest request) {
+                if (request.document() == null) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("No document"));
+                }
+                return CompletableFuture.supplyAsync(() -> {
+                    sleepUpTo(5);
+                    return DetectDocumentTextResponse.builder().build();
+                }, service);
+            }
+
+            @Override
+            public String serviceName() {
+                return "textract";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        List<DetectDocumentTextBatch.Page> pages = IntStream.rangeClosed(1, 100)
+                .mapToObj(n -> new DetectDocumentTextBatch.Page("page" + n + ".png",
+                        () -> n == 50 ? null : Document.builder().build()))
+                .collect(Collectors.toList());
+        List<Integer> pageNumbers = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+        try {
+            int failed = new DetectDocumentTextBatch(textract, 4, 1000).detectText(pages, result -> {
+                assertEquals(caller, Thread.currentThread());
+                pageNumbers.add(result.pageNumber());
+                sleepUpTo(2);
+            });
+
+            assertEquals(1, failed);
+            assertEquals(IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList()), pageNumbers);
+        } finally {
+            service.shutdown();
+            assertTrue(service.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void sleepUpTo(int millis) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(millis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
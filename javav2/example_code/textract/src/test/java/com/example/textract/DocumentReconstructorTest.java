@@ -0,0 +1,87 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.textract.model.Block;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reconstructs a recorded AnalyzeDocument response with one page of form fields
+ * and a table, and checks the CSV that CsvTableWriter writes.
+ */
+class DocumentReconstructorTest {
+    private static final String RECORDED_RESPONSE = "/analyze-document-response.json";
+
+    @Test
+    void writesTheTableAndTheFormFields() throws IOException {
+        StringWriter tables = new StringWriter();
+        StringWriter fields = new StringWriter();
+        CsvTableWriter writer = new CsvTableWriter(tables, fields);
+        DocumentReconstructor reconstructor = new DocumentReconstructor(writer);
+
+        reconstructor.reconstruct(ReconstructionBenchmark.readBlocks(RECORDED_RESPONSE).iterator());
+
+        assertEquals(1, reconstructor.pagesSeen());
+        assertEquals(1, reconstructor.tablesSeen());
+        assertEquals(25, writer.rowsWritten());
+
+        String[] rows = tables.toString().split("\r\n");
+        assertEquals(25, rows.length);
+        // The first two cells of the header row are merged, so both hold the merged text.
+        assertEquals("Account Total,Account Total,Order,Reference,Discount,Item", rows[0]);
+        assertEquals("amount,customer,153.32,293.68,141.37,550.14", rows[1]);
+        assertEquals("discount,date,35.46,169.73,500.0,938.64", rows[19]);
+        assertEquals("account,reference,383.72,709.87,973.15,220.81", rows[24]);
+
+        String[] pairs = fields.toString().split("\r\n");
+        assertEquals(15, pairs.length);
+        assertEquals("1,Zip subtotal:,7702 price", pairs[0]);
+        assertEquals("1,Address total:,2111 invoice", pairs[8]);
+        assertEquals("1,Price order:,14372 reference", pairs[14]);
+    }
+
+    @Test
+    void reconstructsEachPageOnItsOwn() throws IOException {
+        List<Block> page = ReconstructionBenchmark.readBlocks(RECORDED_RESPONSE);
+        List<Block> blocks = new ArrayList<>();
+        for (int p = 1; p <= 3; p++) {
+            for (Block block : page) {
+                blocks.add(block.toBuilder().page(p).build());
+            }
+        }
+
+        List<String> tableStarts = new ArrayList<>();
+        List<String> firstCells = new ArrayList<>();
+        List<Integer> fieldPages = new ArrayList<>();
+        new DocumentReconstructor(new ReconstructionListener() {
+            @Override
+            public void startTable(int page, int tableNumber, int columnCount) {
+                tableStarts.add(page + ":" + tableNumber + ":" + columnCount);
+            }
+
+            @Override
+            public void row(int rowIndex, String[] cells) {
+                firstCells.add(cells[0]);
+            }
+
+            @Override
+            public void field(int page, String key, String value) {
+                fieldPages.add(page);
+            }
+        }).reconstruct(blocks.iterator());
+
+        assertEquals(List.of("1:1:6", "2:2:6", "3:3:6"), tableStarts);
+        assertEquals(75, firstCells.size());
+        assertEquals("Account Total", firstCells.get(25));
+        assertEquals(45, fieldPages.size());
+        assertEquals(3, fieldPages.get(44));
+    }
+}
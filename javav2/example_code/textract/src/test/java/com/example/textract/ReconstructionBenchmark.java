@@ -0,0 +1,165 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.textract;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import software.amazon.awssdk.services.textract.model.Block;
+import software.amazon.awssdk.services.textract.model.Relationship;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many pages per second DocumentReconstructor turns into CSV.
+ *
+ * The input is a recorded AnalyzeDocument response with one page of form
+ * fields and a table, repeated to build longer documents. Run it with:
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.textract.ReconstructionBenchmark
+ *
+ * The pages counter in the results is the reconstruction rate in pages per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReconstructionBenchmark {
+    private static final String RECORDED_RESPONSE = "/analyze-document-response.json";
+
+    @Param({ "1", "100" })
+    public int pages;
+
+    private List<Block> blocks;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long pages;
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pages = 0;
+            rows = 0;
+        }
+    }
+
+    @Setup
+    public void loadRecordedResponse() throws IOException {
+        List<Block> page = readBlocks(RECORDED_RESPONSE);
+        blocks = new ArrayList<>(page.size() * pages);
+        for (int p = 1; p <= pages; p++) {
+            for (Block block : page) {
+                blocks.add(block.toBuilder().page(p).build());
+            }
+        }
+    }
+
+    @Benchmark
+    public void reconstructToCsv(Counters counters) {
+        CsvTableWriter writer = new CsvTableWriter(Writer.nullWriter(), Writer.nullWriter());
+        DocumentReconstructor reconstructor = new DocumentReconstructor(writer);
+        reconstructor.reconstruct(blocks.iterator());
+        counters.pages += reconstructor.pagesSeen();
+        counters.rows += writer.rowsWritten();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReconstructionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Reads the blocks of a recorded AnalyzeDocument or GetDocumentAnalysis
+     * response from the classpath.
+     */
+    static List<Block> readBlocks(String resource) throws IOException {
+        try (InputStream input = ReconstructionBenchmark.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IOException("Unable to find " + resource);
+            }
+
+            Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            JsonArray jsonBlocks = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonArray("Blocks");
+            List<Block> blocks = new ArrayList<>(jsonBlocks.size());
+            for (JsonElement element : jsonBlocks) {
+                blocks.add(toBlock(element.getAsJsonObject()));
+            }
+            return blocks;
+        }
+    }
+
+    private static Block toBlock(JsonObject json) {
+        List<Relationship> relationships = new ArrayList<>();
+        if (json.has("Relationships")) {
+            for (JsonElement element : json.getAsJsonArray("Relationships")) {
+                JsonObject relationship = element.getAsJsonObject();
+                relationships.add(Relationship.builder()
+                        .type(relationship.get("Type").getAsString())
+                        .ids(strings(relationship.getAsJsonArray("Ids")))
+                        .build());
+            }
+        }
+
+        return Block.builder()
+                .id(string(json, "Id"))
+                .blockType(string(json, "BlockType"))
+                .text(string(json, "Text"))
+                .textType(string(json, "TextType"))
+                .selectionStatus(string(json, "SelectionStatus"))
+                .confidence(json.has("Confidence") ? json.get("Confidence").getAsFloat() : null)
+                .page(integer(json, "Page"))
+                .rowIndex(integer(json, "RowIndex"))
+                .columnIndex(integer(json, "ColumnIndex"))
+                .rowSpan(integer(json, "RowSpan"))
+                .columnSpan(integer(json, "ColumnSpan"))
+                .entityTypesWithStrings(json.has("EntityTypes") ? strings(json.getAsJsonArray("EntityTypes")) : null)
+                .relationships(json.has("Relationships") ? relationships : null)
+                .build();
+    }
+
+    private static String string(JsonObject json, String name) {
+        return json.has(name) ? json.get(name).getAsString() : null;
+    }
+
+    private static Integer integer(JsonObject json, String name) {
+        return json.has(name) ? json.get(name).getAsInt() : null;
+    }
+
+    private static List<String> strings(JsonArray array) {
+        List<String> values = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            values.add(element.getAsString());
+        }
+        return values;
+    }
+}
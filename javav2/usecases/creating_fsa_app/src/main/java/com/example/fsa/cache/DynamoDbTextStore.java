@@ -0,0 +1,73 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.cache;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Stores cached text in an Amazon DynamoDB table (or DynamoDB Local) so that it
+ * is shared by every instance of the function and survives cold starts.
+ *
+ * The table needs a string partition key named contentKey. Enable DynamoDB Time
+ * to Live on the expiresAt attribute so that expired entries are deleted and the
+ * table stays bounded.
+ */
+public class DynamoDbTextStore implements TextStore {
+    private static final String KEY = "contentKey";
+    private static final String TEXT = "text";
+    private static final String EXPIRES_AT = "expiresAt";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public DynamoDbTextStore(DynamoDbClient dynamoDbClient, String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public StoredText get(String key) {
+        try {
+            GetItemResponse response = dynamoDbClient.getItem(b -> b
+                    .tableName(tableName)
+                    .key(Map.of(KEY, AttributeValue.fromS(key))));
+
+            if (!response.hasItem() || !response.item().containsKey(TEXT) || !response.item().containsKey(EXPIRES_AT)) {
+                return null;
+            }
+
+            // Time to Live deletes items lazily, so the expiry time is returned for the cache to check.
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(response.item().get(EXPIRES_AT).n()));
+            return new StoredText(response.item().get(TEXT).s(), expiresAt);
+
+        } catch (DynamoDbException e) {
+            System.err.println("Unable to read cached text for " + key + ": " + e.getMessage());
+            return null;
+        } catch (NumberFormatException e) {
+            // The item was not written by this store; treat it as a miss so it is overwritten.
+            System.err.println("Ignoring cached text for " + key + " with an invalid expiry: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, String text, Instant expiresAt) {
+        try {
+            dynamoDbClient.putItem(b -> b
+                    .tableName(tableName)
+                    .item(Map.of(
+                            KEY, AttributeValue.fromS(key),
+                            TEXT, AttributeValue.fromS(text),
+                            EXPIRES_AT, AttributeValue.fromN(Long.toString(expiresAt.getEpochSecond())))));
+
+        } catch (DynamoDbException e) {
+            System.err.println("Unable to cache text for " + key + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores cached text as files in a local directory, such as /tmp in a Lambda
+ * function. Each file holds the expiry time on its first line and the text after
+ * it. When the directory holds a tenth more than the maximum number of files,
+ * the least recently written files are deleted down to the maximum, so the
+ * directory is only listed once in a while.
+ */
+public class FileTextStore implements TextStore {
+    private static final String SUFFIX = ".txt";
+
+    private final Path directory;
+    private final int maxFiles;
+    private final int evictionThreshold;
+    private final AtomicInteger fileCount;
+
+    public FileTextStore(Path directory, int maxFiles) {
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+        this.evictionThreshold = maxFiles + Math.max(1, maxFiles / 10);
+        try {
+            Files.createDirectories(directory);
+            this.fileCount = new AtomicInteger(listFiles().size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public StoredText get(String key) {
+        Path file = fileFor(key);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            Instant expiresAt = Instant.ofEpochMilli(Long.parseLong(content.substring(0, newline)));
+            if (!expiresAt.isAfter(Instant.now())) {
+                if (Files.deleteIfExists(file)) {
+                    fileCount.decrementAndGet();
+                }
+                return null;
+            }
+            return new StoredText(content.substring(newline + 1), expiresAt);
+
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // A damaged entry is treated as a miss.
+            System.err.println("Unable to read cached text for " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, String text, Instant expiresAt) {
+        Path file = fileFor(key);
+        Path temp = null;
+        try {
+            // Write to a temporary file first so that readers never see a partial entry.
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            Files.writeString(temp, expiresAt.toEpochMilli() + "\n" + text, StandardCharsets.UTF_8);
+            boolean added = Files.notExists(file);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            if (added && fileCount.incrementAndGet() > evictionThreshold) {
+                evictOldest();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to cache text for " + key + ": " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private synchronized void evictOldest() throws IOException {
+        List<Path> files = listFiles();
+        if (files.size() > maxFiles) {
+            files.sort(Comparator.comparingLong(FileTextStore::lastModified));
+            for (Path file : files.subList(0, files.size() - maxFiles)) {
+                Files.deleteIfExists(file);
+            }
+        }
+        // Other threads may have added files since the listing, so this count can be a little low.
+        fileCount.set(Math.min(files.size(), maxFiles));
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(path -> path.toString().endsWith(SUFFIX)).collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Unable to delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        // Keys can contain characters that are not valid in file names, so hash them.
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A two-tier cache for text extracted from documents, keyed by the content of the
+ * document (for example, its Amazon S3 ETag or a SHA-256 digest).
+ *
+ * The first tier is a size-bounded, least-recently-used map in memory, which
+ * survives between invocations of a warm Lambda function. The optional second
+ * tier is a {@link TextStore} that survives cold starts. Entries expire from
+ * both tiers after the configured time to live.
+ */
+public class TextCache {
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final TextStore store;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries the maximum number of entries kept in memory
+     * @param timeToLive how long an entry stays valid after it is cached
+     * @param store      the persistent tier, or null to cache in memory only
+     */
+    public TextCache(int maxEntries, Duration timeToLive, TextStore store) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.store = store;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > TextCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached text for a key, or null if it is missing or expired.
+     */
+    public String get(String key) {
+        Instant now = Instant.now();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt.isAfter(now)) {
+                    hits.incrementAndGet();
+                    return entry.text;
+                }
+                entries.remove(key);
+            }
+        }
+
+        if (store != null) {
+            TextStore.StoredText stored = store.get(key);
+            if (stored != null && stored.expiresAt().isAfter(now)) {
+                // Promote the entry so the next lookup does not leave the process.
+                synchronized (entries) {
+                    entries.put(key, new Entry(stored.text(), stored.expiresAt()));
+                }
+                hits.incrementAndGet();
+                return stored.text();
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches the text for a key in every tier.
+     */
+    public void put(String key, String text) {
+        Instant expiresAt = Instant.now().plus(timeToLive);
+        synchronized (entries) {
+            entries.put(key, new Entry(text, expiresAt));
+        }
+        if (store != null) {
+            store.put(key, text, expiresAt);
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private static final class Entry {
+        private final String text;
+        private final Instant expiresAt;
+
+        private Entry(String text, Instant expiresAt) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
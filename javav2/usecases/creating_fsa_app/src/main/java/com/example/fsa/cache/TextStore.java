@@ -0,0 +1,41 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.cache;
+
+import java.time.Instant;
+
+/**
+ * A persistent tier for {@link TextCache}.
+ */
+public interface TextStore {
+
+    /**
+     * Returns the stored text for a key, or null if there is none. The entry
+     * may already be expired; the cache checks the expiry time.
+     */
+    StoredText get(String key);
+
+    void put(String key, String text, Instant expiresAt);
+
+    /**
+     * Text read from a store, with the time at which it expires.
+     */
+    final class StoredText {
+        private final String text;
+        private final Instant expiresAt;
+
+        public StoredText(String text, Instant expiresAt) {
+            this.text = text;
+            this.expiresAt = expiresAt;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public Instant expiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.example.fsa.services.PollyService;
 import com.example.fsa.services.S3Service;
+import com.example.fsa.services.UploadMetrics;
+import com.example.fsa.services.VoiceRegistry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
@@ -25,6 +27,13 @@ public class SynthesizeAudioHandler implements RequestHandler<Map<String, Object
             InputStream is = pollyService.synthesize(translatedText);
             String audioFile = s3Service.putAudio(is, bucket, key);
             context.getLogger().log("You have successfully added the " + audioFile + "  in " + bucket);
+            VoiceRegistry voices = PollyService.getVoiceRegistry();
+            context.getLogger().log("Voice lookups: " + voices.lookups() + ", from memory: "
+                    + voices.lookupsFromMemory() + ", DescribeVoices time saved: " + voices.latencySaved().toMillis()
+                    + " ms");
+            UploadMetrics uploads = S3Service.getUploadMetrics();
+            context.getLogger().log(String.format("Uploads: %d, throughput: %.1f MB/s, parts: %d, part retries: %d",
+                    uploads.uploads(), uploads.throughputMBps(), uploads.parts(), uploads.partRetries()));
             return audioFile;
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.pipeline;
+
+import com.example.fsa.services.DetectSentimentService;
+import com.example.fsa.services.ExtractTextService;
+import com.example.fsa.services.PollyService;
+import com.example.fsa.services.S3Service;
+import com.example.fsa.services.TranslateService;
+import org.json.simple.JSONObject;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the steps of the Feedback Sentiment Analyzer in one process, chaining the
+ * asynchronous service calls instead of passing each result through AWS Step
+ * Functions and a separate Lambda function.
+ *
+ * Once the dominant language of the extracted text is known, sentiment analysis
+ * and translation run at the same time, and the translated text is synthesized
+ * and streamed to Amazon S3 while the sentiment request may still be in flight.
+ */
+public class DocumentPipeline {
+    private final ExtractTextService textService = new ExtractTextService();
+    private final DetectSentimentService sentimentService = new DetectSentimentService();
+    private final TranslateService translateService = new TranslateService();
+    private final PollyService pollyService = new PollyService();
+    private final S3Service s3Service = new S3Service();
+
+    /**
+     * Processes an image in Amazon S3 and writes the audio of its translated text
+     * next to it, under the same key with ".mp3" appended.
+     */
+    public CompletableFuture<Result> process(String bucketName, String key) {
+        return textService.getCardTextAsync(bucketName, key)
+                .thenCompose(text -> sentimentService.detectTheDominantLanguageAsync(text)
+                        .thenCompose(languageCode -> {
+                            CompletableFuture<JSONObject> sentiment = sentimentService
+                                    .detectSentimentAsync(text, languageCode);
+                            CompletableFuture<String> translation = translateService
+                                    .translateTextAsync(languageCode, text);
+                            CompletableFuture<String> audio = translation
+                                    .thenCompose(pollyService::synthesizeAsync)
+                                    .thenCompose(speech -> s3Service.putAudioAsync(speech, bucketName, key + ".mp3"));
+
+                            return CompletableFuture.allOf(sentiment, audio)
+                                    .thenApply(done -> new Result(text, languageCode, sentiment.join(),
+                                            translation.join(), audio.join()));
+                        }));
+    }
+
+    /**
+     * The output of every step for one document.
+     */
+    public static final class Result {
+        private final String extractedText;
+        private final String languageCode;
+        private final JSONObject sentiment;
+        private final String translatedText;
+        private final String audioKey;
+
+        Result(String extractedText, String languageCode, JSONObject sentiment, String translatedText,
+                String audioKey) {
+            this.extractedText = extractedText;
+            this.languageCode = languageCode;
+            this.sentiment = sentiment;
+            this.translatedText = translatedText;
+            this.audioKey = audioKey;
+        }
+
+        public String extractedText() {
+            return extractedText;
+        }
+
+        public String languageCode() {
+            return languageCode;
+        }
+
+        public JSONObject sentiment() {
+            return sentiment;
+        }
+
+        public String translatedText() {
+            return translatedText;
+        }
+
+        public String audioKey() {
+            return audioKey;
+        }
+    }
+}
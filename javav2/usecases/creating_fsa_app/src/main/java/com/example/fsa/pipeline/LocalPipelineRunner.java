@@ -0,0 +1,50 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.pipeline;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs the Feedback Sentiment Analyzer on one image from the command line,
+ * without deploying the Lambda functions or the state machine.
+ *
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ */
+public class LocalPipelineRunner {
+    public static void main(String[] args) {
+        final String usage = """
+
+                Usage:
+                    <bucketName> <key>\s
+
+                Where:
+                    bucketName - The Amazon S3 bucket that contains the image.\s
+                    key - The key of the image. The audio is written to the same bucket with ".mp3" appended.\s
+                """;
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        try {
+            DocumentPipeline.Result result = new DocumentPipeline().process(args[0], args[1]).join();
+            System.out.println("Extracted text: " + result.extractedText());
+            System.out.println("Sentiment: " + result.sentiment().toJSONString());
+            System.out.println("Translated text: " + result.translatedText());
+            System.out.println("Audio: s3://" + args[0] + "/" + result.audioKey());
+            System.out.printf("Completed in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        } catch (CompletionException e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(1);
+        }
+    }
+}
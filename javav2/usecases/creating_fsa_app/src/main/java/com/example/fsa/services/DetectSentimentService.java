@@ -8,9 +8,7 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.comprehend.ComprehendAsyncClient;
 import software.amazon.awssdk.services.comprehend.model.ComprehendException;
 import software.amazon.awssdk.services.comprehend.model.DetectDominantLanguageRequest;
-import software.amazon.awssdk.services.comprehend.model.DetectDominantLanguageResponse;
 import software.amazon.awssdk.services.comprehend.model.DetectSentimentRequest;
-import software.amazon.awssdk.services.comprehend.model.DetectSentimentResponse;
 import software.amazon.awssdk.services.comprehend.model.DominantLanguage;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -30,21 +28,7 @@ public class DetectSentimentService {
 
     public JSONObject detectSentiments(String text) {
         try {
-            String languageCode = detectTheDominantLanguage(text);
-            DetectSentimentRequest detectSentimentRequest = DetectSentimentRequest.builder()
-                    .text(text)
-                    .languageCode(languageCode)
-                    .build();
-
-            CompletableFuture<?> future = getComprehendAsyncClient().detectSentiment(detectSentimentRequest);
-            future.join();
-
-            // Wait for the operation to complete and get the result
-            DetectSentimentResponse detectSentimentResult = (DetectSentimentResponse) future.join();
-            JSONObject jsonObject = new JSONObject();
-            jsonObject.put("sentiment", detectSentimentResult.sentimentAsString());
-            jsonObject.put("language_code", languageCode);
-            return jsonObject;
+            return Futures.join(detectSentimentsAsync(text));
 
         } catch (ComprehendException e) {
             System.err.println(e.awsErrorDetails().errorMessage());
@@ -54,25 +38,50 @@ public class DetectSentimentService {
 
     public String detectTheDominantLanguage(String text) {
         try {
-            DetectDominantLanguageRequest request = DetectDominantLanguageRequest.builder()
-                    .text(text)
-                    .build();
-
-            CompletableFuture<?> future = getComprehendAsyncClient().detectDominantLanguage(request);
-            future.join();
-
-            DetectDominantLanguageResponse resp = (DetectDominantLanguageResponse) future.join();
-            List<DominantLanguage> allLanList = resp.languages();
-            if (!allLanList.isEmpty()) {
-                DominantLanguage firstLanguage = allLanList.get(0);
-                return firstLanguage.languageCode();
-            } else {
-                return "No languages found";
-            }
+            return Futures.join(detectTheDominantLanguageAsync(text));
 
         } catch (ComprehendException e) {
             System.out.println(e.getMessage());
             throw e;
         }
     }
+
+    // Detects the dominant language and then the sentiment of the text.
+    public CompletableFuture<JSONObject> detectSentimentsAsync(String text) {
+        return detectTheDominantLanguageAsync(text)
+                .thenCompose(languageCode -> detectSentimentAsync(text, languageCode));
+    }
+
+    // Detects the sentiment of text whose language is already known.
+    public CompletableFuture<JSONObject> detectSentimentAsync(String text, String languageCode) {
+        DetectSentimentRequest detectSentimentRequest = DetectSentimentRequest.builder()
+                .text(text)
+                .languageCode(languageCode)
+                .build();
+
+        return getComprehendAsyncClient().detectSentiment(detectSentimentRequest)
+                .thenApply(detectSentimentResult -> {
+                    JSONObject jsonObject = new JSONObject();
+                    jsonObject.put("sentiment", detectSentimentResult.sentimentAsString());
+                    jsonObject.put("language_code", languageCode);
+                    return jsonObject;
+                });
+    }
+
+    public CompletableFuture<String> detectTheDominantLanguageAsync(String text) {
+        DetectDominantLanguageRequest request = DetectDominantLanguageRequest.builder()
+                .text(text)
+                .build();
+
+        return getComprehendAsyncClient().detectDominantLanguage(request)
+                .thenApply(resp -> {
+                    List<DominantLanguage> allLanList = resp.languages();
+                    if (!allLanList.isEmpty()) {
+                        DominantLanguage firstLanguage = allLanList.get(0);
+                        return firstLanguage.languageCode();
+                    } else {
+                        return "No languages found";
+                    }
+                });
+    }
 }
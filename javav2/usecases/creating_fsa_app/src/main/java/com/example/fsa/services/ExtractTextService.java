@@ -3,22 +3,49 @@
 
 package com.example.fsa.services;
 
+import com.example.fsa.cache.DynamoDbTextStore;
+import com.example.fsa.cache.FileTextStore;
+import com.example.fsa.cache.TextCache;
+import com.example.fsa.cache.TextStore;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.textract.model.BlockType;
 import software.amazon.awssdk.services.textract.model.Document;
 import software.amazon.awssdk.services.textract.model.DetectDocumentTextRequest;
-import software.amazon.awssdk.services.textract.model.DetectDocumentTextResponse;
 import software.amazon.awssdk.services.textract.model.Block;
 import software.amazon.awssdk.services.textract.TextractAsyncClient;
 import software.amazon.awssdk.services.textract.model.S3Object;
 import software.amazon.awssdk.services.textract.model.TextractException;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ExtractTextService {
 
+    // The cache is configured with these environment variables. TEXT_CACHE_TABLE
+    // takes precedence over TEXT_CACHE_DIR when both are set.
+    private static final String CACHE_DIR = "TEXT_CACHE_DIR";
+    private static final String CACHE_TABLE = "TEXT_CACHE_TABLE";
+    private static final String CACHE_TTL_HOURS = "TEXT_CACHE_TTL_HOURS";
+
+    private static final int CACHE_THREADS = 4;
+
+    // Cache lookups and stores read files or call DynamoDB synchronously, so they run
+    // here instead of on the threads that complete the SDK's async calls.
+    private static final ExecutorService cacheExecutor = Executors.newFixedThreadPool(CACHE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "text-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private static TextractAsyncClient textractAsyncClient;
+    private static S3AsyncClient s3AsyncClient;
+    private static TextCache textCache;
 
     private static synchronized TextractAsyncClient getTextractAsyncClient() {
         if (textractAsyncClient == null) {
@@ -29,36 +56,40 @@ public class ExtractTextService {
         return textractAsyncClient;
     }
 
-    public String getCardText(String bucketName, String obName) {
-        try {
-            S3Object s3Object = S3Object.builder()
-                    .bucket(bucketName)
-                    .name(obName)
-                    .build();
-
-            Document myDoc = Document.builder()
-                    .s3Object(s3Object)
+    private static synchronized S3AsyncClient getS3AsyncClient() {
+        if (s3AsyncClient == null) {
+            s3AsyncClient = S3AsyncClient.builder()
+                    .region(Region.US_EAST_1)
                     .build();
+        }
+        return s3AsyncClient;
+    }
 
-            DetectDocumentTextRequest detectDocumentTextRequest = DetectDocumentTextRequest.builder()
-                    .document(myDoc)
-                    .build();
+    private static synchronized TextCache getTextCache() {
+        if (textCache == null) {
+            String table = System.getenv(CACHE_TABLE);
+            String dir = System.getenv(CACHE_DIR);
+            String ttlHours = System.getenv(CACHE_TTL_HOURS);
 
-            StringBuilder completeText = new StringBuilder();
-            CompletableFuture<?> future = getTextractAsyncClient().detectDocumentText(detectDocumentTextRequest);
-            future.join();
-
-            DetectDocumentTextResponse textResponse = (DetectDocumentTextResponse) future.join();
-            for (Block block : textResponse.blocks()) {
-                if (block.blockType() == BlockType.WORD) {
-                    if (completeText.length() == 0) {
-                        completeText.append(block.text());
-                    } else {
-                        completeText.append(" ").append(block.text());
-                    }
-                }
+            TextStore store;
+            if (table != null) {
+                store = new DynamoDbTextStore(DynamoDbClient.builder().region(Region.US_EAST_1).build(), table);
+            } else {
+                store = new FileTextStore(Paths.get(dir == null ? "/tmp/textract-cache" : dir), 1000);
             }
-            return completeText.toString();
+            textCache = new TextCache(100, Duration.ofHours(ttlHours == null ? 24 : Long.parseLong(ttlHours)), store);
+        }
+        return textCache;
+    }
+
+    /**
+     * Returns the words in an image stored in Amazon S3. Text that was already
+     * extracted from an object with the same content is returned from the cache
+     * instead of calling Amazon Textract again.
+     */
+    public String getCardText(String bucketName, String obName) {
+        try {
+            return Futures.join(getCardTextAsync(bucketName, obName));
 
         } catch (TextractException e) {
             System.err.println(e.awsErrorDetails().errorMessage());
@@ -68,4 +99,53 @@ public class ExtractTextService {
             throw e; // Re-throw the exception.
         }
     }
-}
\ No newline at end of file
+
+    public CompletableFuture<String> getCardTextAsync(String bucketName, String obName) {
+        // The ETag is derived from the content of the object, so copies of the same
+        // image share an entry and an overwritten object gets a new one.
+        return getS3AsyncClient().headObject(b -> b.bucket(bucketName).key(obName))
+                .thenComposeAsync(head -> {
+                    String cacheKey = head.eTag().replace("\"", "");
+                    TextCache cache = getTextCache();
+                    String cachedText = cache.get(cacheKey);
+                    if (cachedText != null) {
+                        return CompletableFuture.completedFuture(cachedText);
+                    }
+
+                    return detectTextAsync(bucketName, obName).thenApplyAsync(text -> {
+                        cache.put(cacheKey, text);
+                        return text;
+                    }, cacheExecutor);
+                }, cacheExecutor);
+    }
+
+    private CompletableFuture<String> detectTextAsync(String bucketName, String obName) {
+        S3Object s3Object = S3Object.builder()
+                .bucket(bucketName)
+                .name(obName)
+                .build();
+
+        Document myDoc = Document.builder()
+                .s3Object(s3Object)
+                .build();
+
+        DetectDocumentTextRequest detectDocumentTextRequest = DetectDocumentTextRequest.builder()
+                .document(myDoc)
+                .build();
+
+        return getTextractAsyncClient().detectDocumentText(detectDocumentTextRequest)
+                .thenApply(textResponse -> {
+                    StringBuilder completeText = new StringBuilder();
+                    for (Block block : textResponse.blocks()) {
+                        if (block.blockType() == BlockType.WORD) {
+                            if (completeText.length() == 0) {
+                                completeText.append(block.text());
+                            } else {
+                                completeText.append(" ").append(block.text());
+                            }
+                        }
+                    }
+                    return completeText.toString();
+                });
+    }
+}
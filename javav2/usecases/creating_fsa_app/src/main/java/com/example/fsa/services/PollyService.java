@@ -3,23 +3,27 @@
 
 package com.example.fsa.services;
 
-import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.polly.PollyAsyncClient;
-import software.amazon.awssdk.services.polly.model.DescribeVoicesRequest;
 import software.amazon.awssdk.services.polly.model.PollyException;
 import software.amazon.awssdk.services.polly.model.SynthesizeSpeechRequest;
-import software.amazon.awssdk.services.polly.model.SynthesizeSpeechResponse;
 import software.amazon.awssdk.services.polly.model.Voice;
-import software.amazon.awssdk.services.polly.model.DescribeVoicesResponse;
 import software.amazon.awssdk.services.polly.model.OutputFormat;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 
 public class PollyService {
+    // SynthesizeSpeech accepts up to 3,000 billed characters of plain text.
+    private static final int MAX_CHUNK_CHARS = 3000;
+    private static final int PARALLEL_CHUNKS = 4;
+
     private static PollyAsyncClient pollyAsyncClient;
+    private static VoiceRegistry voiceRegistry;
 
     private static synchronized PollyAsyncClient getPollyAsyncClient() {
         if (pollyAsyncClient == null) {
@@ -31,33 +35,58 @@ public class PollyService {
         return pollyAsyncClient;
     }
 
+    public static synchronized VoiceRegistry getVoiceRegistry() {
+        if (voiceRegistry == null) {
+            voiceRegistry = new VoiceRegistry(getPollyAsyncClient(), Duration.ofHours(6));
+        }
+        return voiceRegistry;
+    }
+
+    // Returns the audio as a stream that joins the audio of each chunk of the text.
+    // Chunks are synthesized a few at a time, ahead of the reader. A chunk that
+    // fails is reported as an IOException when the stream reaches it, and closing
+    // the stream cancels the chunks still being synthesized.
     public InputStream synthesize(String text) throws IOException {
         try {
-            DescribeVoicesRequest describeVoicesRequest = DescribeVoicesRequest.builder()
-                    .engine("neural")
-                    .build();
-
-            CompletableFuture<?> future = getPollyAsyncClient().describeVoices(describeVoicesRequest);
-            DescribeVoicesResponse describeVoicesResult = (DescribeVoicesResponse) future.join();
-            Voice voice = describeVoicesResult.voices().stream()
-                    .filter(v -> v.name().equals("Joanna"))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Voice not found"));
-
-            SynthesizeSpeechRequest request = SynthesizeSpeechRequest.builder()
-                    .text(text)
-                    .outputFormat(OutputFormat.MP3)
-                    .voiceId(voice.id())
-                    .build();
-
-            CompletableFuture<ResponseInputStream<SynthesizeSpeechResponse>> audioFuture = getPollyAsyncClient()
-                    .synthesizeSpeech(request, AsyncResponseTransformer.toBlockingInputStream());
-            InputStream audioInputStream = audioFuture.join();
-            return audioInputStream;
+            Voice voice = Futures.join(findVoiceAsync());
+            return new SpeechInputStream(segments(text, voice));
 
         } catch (PollyException e) {
             System.err.println(e.awsErrorDetails().errorMessage());
             throw e;
         }
     }
+
+    // Returns the audio as a publisher, so it can be streamed to Amazon S3 as each
+    // chunk arrives without a thread blocking on an InputStream. The publisher can
+    // be subscribed to only once.
+    public CompletableFuture<SdkPublisher<ByteBuffer>> synthesizeAsync(String text) {
+        return findVoiceAsync().thenApply(voice -> new SpeechPublisher(segments(text, voice)));
+    }
+
+    private SpeechSegments segments(String text, Voice voice) {
+        return new SpeechSegments(SentenceChunker.split(text, MAX_CHUNK_CHARS),
+                chunk -> getPollyAsyncClient()
+                        .synthesizeSpeech(synthesizeRequest(chunk, voice), AsyncResponseTransformer.toBytes())
+                        .thenApply(audio -> ByteBuffer.wrap(audio.asByteArrayUnsafe())),
+                PARALLEL_CHUNKS);
+    }
+
+    private CompletableFuture<Voice> findVoiceAsync() {
+        return getVoiceRegistry().findVoice("Joanna", "neural")
+                .thenApply(voice -> {
+                    if (voice == null) {
+                        throw new RuntimeException("Voice not found");
+                    }
+                    return voice;
+                });
+    }
+
+    private static SynthesizeSpeechRequest synthesizeRequest(String text, Voice voice) {
+        return SynthesizeSpeechRequest.builder()
+                .text(text)
+                .outputFormat(OutputFormat.MP3)
+                .voiceId(voice.id())
+                .build();
+    }
 }
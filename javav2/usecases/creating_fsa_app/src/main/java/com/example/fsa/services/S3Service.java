@@ -5,6 +5,8 @@ package com.example.fsa.services;
 
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.S3Exception;
@@ -12,34 +14,68 @@ import software.amazon.awssdk.transfer.s3.S3TransferManager;
 import software.amazon.awssdk.transfer.s3.model.Upload;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 public class S3Service {
 
+    // The upload is tuned with these environment variables.
+    private static final String PART_SIZE_MB = "AUDIO_UPLOAD_PART_SIZE_MB";
+    private static final String MAX_CONCURRENCY = "AUDIO_UPLOAD_MAX_CONCURRENCY";
+
     private static S3AsyncClient s3AsyncClient;
+    private static S3TransferManager transferManager;
+    private static final UploadMetrics uploadMetrics = new UploadMetrics();
 
+    // The Java-based multipart client is used rather than the CRT-based client
+    // because it reports SDK metrics, including retries, for each UploadPart call.
     private static synchronized S3AsyncClient getS3AsyncClient() {
         if (s3AsyncClient == null) {
-            s3AsyncClient = S3AsyncClient.crtBuilder()
+            long partSize = Long.parseLong(getenv(PART_SIZE_MB, "8")) * 1024 * 1024;
+            int maxConcurrency = Integer.parseInt(getenv(MAX_CONCURRENCY, "16"));
+            s3AsyncClient = S3AsyncClient.builder()
                     .region(Region.US_EAST_1)
+                    .multipartEnabled(true)
+                    .multipartConfiguration(c -> c
+                            .minimumPartSizeInBytes(partSize)
+                            .thresholdInBytes(partSize))
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                            .maxConcurrency(maxConcurrency))
+                    .overrideConfiguration(o -> o.addMetricPublisher(uploadMetrics))
                     .build();
         }
         return s3AsyncClient;
     }
 
-    // Put the audio file into the Amazon S3 bucket.
-    public String putAudio(InputStream is, String bucketName, String key) throws S3Exception, IOException {
-        try {
-            S3TransferManager transferManager = S3TransferManager.builder()
+    // One transfer manager is shared by every upload made by the function instance.
+    private static synchronized S3TransferManager getTransferManager() {
+        if (transferManager == null) {
+            transferManager = S3TransferManager.builder()
                     .s3Client(getS3AsyncClient())
                     .build();
+        }
+        return transferManager;
+    }
+
+    public static UploadMetrics getUploadMetrics() {
+        return uploadMetrics;
+    }
+
+    // Put the audio file into the Amazon S3 bucket.
+    public String putAudio(InputStream is, String bucketName, String key) throws S3Exception, IOException {
+        return putAudio(is, null, bucketName, key);
+    }
 
-            BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(null); // 'null'
-                                                                                                      // indicates a
-                                                                                                      // stream will be
-                                                                                                      // provided later.
-            Upload upload = transferManager.upload(builder -> builder
+    // Put the audio file into the Amazon S3 bucket. When the length is known, the
+    // stream is sent as it is read; otherwise each part is buffered before it is sent.
+    public String putAudio(InputStream is, Long contentLength, String bucketName, String key)
+            throws S3Exception, IOException {
+        try {
+            BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(contentLength);
+            Upload upload = getTransferManager().upload(builder -> builder
                     .requestBody(body)
                     .putObjectRequest(req -> req.bucket(bucketName).key(key))
+                    .addTransferListener(uploadMetrics.newListener())
                     .build());
 
             body.writeInputStream(is);
@@ -51,4 +87,20 @@ public class S3Service {
             throw e;
         }
     }
+
+    // Put the audio into the Amazon S3 bucket as it is published, without blocking a thread.
+    public CompletableFuture<String> putAudioAsync(SdkPublisher<ByteBuffer> audio, String bucketName, String key) {
+        Upload upload = getTransferManager().upload(builder -> builder
+                .requestBody(AsyncRequestBody.fromPublisher(audio))
+                .putObjectRequest(req -> req.bucket(bucketName).key(key))
+                .addTransferListener(uploadMetrics.newListener())
+                .build());
+
+        return upload.completionFuture().thenApply(completedUpload -> key);
+    }
+
+    private static String getenv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
 }
@@ -0,0 +1,55 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into chunks that fit in one SynthesizeSpeech request. Chunks end at
+ * sentence boundaries where possible so that the joined audio does not pause in
+ * the middle of a sentence. A sentence that is longer than the limit is split
+ * between words.
+ */
+public final class SentenceChunker {
+
+    private SentenceChunker() {
+    }
+
+    public static List<String> split(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ENGLISH);
+        sentences.setText(text);
+
+        int start = sentences.first();
+        for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            String sentence = text.substring(start, end);
+            if (chunk.length() + sentence.length() > maxChars) {
+                addChunk(chunks, chunk);
+            }
+            while (sentence.length() > maxChars) {
+                int split = sentence.lastIndexOf(' ', maxChars);
+                if (split <= 0) {
+                    split = maxChars;
+                }
+                chunks.add(sentence.substring(0, split).trim());
+                sentence = sentence.substring(split);
+            }
+            chunk.append(sentence);
+        }
+        addChunk(chunks, chunk);
+        return chunks;
+    }
+
+    private static void addChunk(List<String> chunks, StringBuilder chunk) {
+        String trimmed = chunk.toString().trim();
+        if (!trimmed.isEmpty()) {
+            chunks.add(trimmed);
+        }
+        chunk.setLength(0);
+    }
+}
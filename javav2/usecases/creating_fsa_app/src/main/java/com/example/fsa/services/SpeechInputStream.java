@@ -0,0 +1,74 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Reads the audio segments of a text in order, waiting for each one to be
+ * synthesized. A segment that fails is reported as an IOException, and closing
+ * the stream cancels the segments that are still being synthesized.
+ */
+final class SpeechInputStream extends InputStream {
+    private final SpeechSegments segments;
+    private ByteBuffer current = ByteBuffer.allocate(0);
+    private boolean closed;
+
+    SpeechInputStream(SpeechSegments segments) {
+        this.segments = segments;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextSegment() ? current.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextSegment()) {
+            return -1;
+        }
+        int count = Math.min(length, current.remaining());
+        current.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.remaining();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        current = ByteBuffer.allocate(0);
+        segments.cancel();
+    }
+
+    // Returns false after the last segment has been read.
+    private boolean nextSegment() throws IOException {
+        while (!current.hasRemaining()) {
+            if (closed) {
+                throw new IOException("The speech stream is closed");
+            }
+            if (!segments.hasNext()) {
+                return false;
+            }
+            try {
+                current = Futures.join(segments.next());
+            } catch (RuntimeException e) {
+                segments.cancel();
+                throw new IOException("Unable to synthesize speech: " + e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+}
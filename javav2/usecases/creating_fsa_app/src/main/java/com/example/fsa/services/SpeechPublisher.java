@@ -0,0 +1,95 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the audio segments of a text in order, as soon as each one is ready
+ * and the subscriber has asked for it. It can be subscribed to only once.
+ */
+final class SpeechPublisher implements SdkPublisher<ByteBuffer> {
+    private final SpeechSegments segments;
+
+    SpeechPublisher(SpeechSegments segments) {
+        this.segments = segments;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        subscriber.onSubscribe(new SegmentSubscription(subscriber));
+    }
+
+    private final class SegmentSubscription implements Subscription {
+        private final Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger drains = new AtomicInteger();
+        private CompletableFuture<ByteBuffer> current;
+        private volatile boolean done;
+
+        private SegmentSubscription(Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+            demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            segments.cancel();
+        }
+
+        // Only one thread emits at a time; a drain requested while another is
+        // running makes that one loop again.
+        private void drain() {
+            if (drains.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!done && demand.get() > 0) {
+                    if (current == null) {
+                        current = segments.next();
+                        if (current == null) {
+                            done = true;
+                            subscriber.onComplete();
+                            break;
+                        }
+                        current.whenComplete((segment, error) -> drain());
+                    }
+                    if (!current.isDone()) {
+                        break;
+                    }
+
+                    ByteBuffer segment;
+                    try {
+                        segment = current.join();
+                    } catch (CompletionException e) {
+                        cancel();
+                        subscriber.onError(e.getCause() == null ? e : e.getCause());
+                        break;
+                    }
+                    current = null;
+                    demand.decrementAndGet();
+                    subscriber.onNext(segment);
+                }
+            } while (drains.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Synthesizes the chunks of a text in order, keeping a bounded number of
+ * SynthesizeSpeech requests ahead of the reader. Only the segments that have been
+ * requested but not yet read are held in memory, however long the text is.
+ */
+final class SpeechSegments {
+    private final List<String> chunks;
+    private final Function<String, CompletableFuture<ByteBuffer>> synthesize;
+    private final int parallelism;
+    private final Deque<CompletableFuture<ByteBuffer>> pending = new ArrayDeque<>();
+    private int started;
+
+    SpeechSegments(List<String> chunks, Function<String, CompletableFuture<ByteBuffer>> synthesize, int parallelism) {
+        this.chunks = chunks;
+        this.synthesize = synthesize;
+        this.parallelism = parallelism;
+    }
+
+    synchronized boolean hasNext() {
+        return !pending.isEmpty() || started < chunks.size();
+    }
+
+    /**
+     * Returns the audio of the next chunk, or null after the last chunk.
+     */
+    synchronized CompletableFuture<ByteBuffer> next() {
+        fill();
+        CompletableFuture<ByteBuffer> next = pending.poll();
+        fill();
+        return next;
+    }
+
+    synchronized void cancel() {
+        started = chunks.size();
+        pending.forEach(segment -> segment.cancel(false));
+        pending.clear();
+    }
+
+    private void fill() {
+        while (pending.size() < parallelism && started < chunks.size()) {
+            pending.add(synthesize.apply(chunks.get(started++)));
+        }
+    }
+}
@@ -26,19 +26,23 @@ public class TranslateService {
 
     public String translateText(String lanCode, String text) {
         try {
-            TranslateTextRequest textRequest = TranslateTextRequest.builder()
-                    .sourceLanguageCode(lanCode)
-                    .targetLanguageCode("en")
-                    .text(text)
-                    .build();
-
-            CompletableFuture<?> future = getTranslateAsyncClient().translateText(textRequest);
-            TranslateTextResponse textResponse = (TranslateTextResponse) future.join();
-            return textResponse.translatedText();
+            return Futures.join(translateTextAsync(lanCode, text));
 
         } catch (TranslateException e) {
             System.err.println(e.awsErrorDetails().errorMessage());
             throw e;
         }
     }
+
+    // Translates the text into English without blocking the calling thread.
+    public CompletableFuture<String> translateTextAsync(String lanCode, String text) {
+        TranslateTextRequest textRequest = TranslateTextRequest.builder()
+                .sourceLanguageCode(lanCode)
+                .targetLanguageCode("en")
+                .text(text)
+                .build();
+
+        return getTranslateAsyncClient().translateText(textRequest)
+                .thenApply(TranslateTextResponse::translatedText);
+    }
 }
@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects upload throughput and part retries for the uploads made by
+ * {@link S3Service}.
+ *
+ * Throughput comes from a {@link TransferListener} attached to each upload. Part
+ * and retry counts come from the SDK metrics of the UploadPart calls, so this
+ * class is also registered as the client's {@link MetricPublisher}.
+ */
+public class UploadMetrics implements MetricPublisher {
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong parts = new AtomicLong();
+    private final AtomicLong partRetries = new AtomicLong();
+
+    /**
+     * Returns a listener that records the size and duration of one upload.
+     */
+    public TransferListener newListener() {
+        return new TransferListener() {
+            private long start;
+
+            @Override
+            public void transferInitiated(Context.TransferInitiated context) {
+                start = System.nanoTime();
+            }
+
+            @Override
+            public void transferComplete(Context.TransferComplete context) {
+                uploads.incrementAndGet();
+                bytes.addAndGet(context.progressSnapshot().transferredBytes());
+                nanos.addAndGet(System.nanoTime() - start);
+            }
+        };
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        if (!metricCollection.metricValues(CoreMetric.OPERATION_NAME).contains("UploadPart")) {
+            return;
+        }
+        parts.incrementAndGet();
+        for (Integer retries : metricCollection.metricValues(CoreMetric.RETRY_COUNT)) {
+            partRetries.addAndGet(retries);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public long uploads() {
+        return uploads.get();
+    }
+
+    public long bytesUploaded() {
+        return bytes.get();
+    }
+
+    public Duration uploadTime() {
+        return Duration.ofNanos(nanos.get());
+    }
+
+    /**
+     * Returns the average upload throughput in megabytes per second.
+     */
+    public double throughputMBps() {
+        long elapsed = nanos.get();
+        return elapsed == 0 ? 0 : bytes.get() / 1_048_576.0 / (elapsed / 1e9);
+    }
+
+    public long parts() {
+        return parts.get();
+    }
+
+    public long partRetries() {
+        return partRetries.get();
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import software.amazon.awssdk.services.polly.PollyAsyncClient;
+import software.amazon.awssdk.services.polly.model.DescribeVoicesRequest;
+import software.amazon.awssdk.services.polly.model.Voice;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the Amazon Polly voice catalog in memory so that synthesis does not need a
+ * DescribeVoices round trip.
+ *
+ * The catalog is loaded on first use, reloaded in the background at a fixed
+ * interval, and indexed by voice name, language code, and engine. If a reload
+ * fails, the previous catalog stays in use.
+ */
+public class VoiceRegistry implements AutoCloseable {
+    private final PollyAsyncClient pollyAsyncClient;
+    private final ScheduledExecutorService refresher;
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupsFromMemory = new AtomicLong();
+    private final AtomicLong latencySavedNanos = new AtomicLong();
+    private volatile CompletableFuture<Catalog> catalog;
+
+    public VoiceRegistry(PollyAsyncClient pollyAsyncClient, Duration refreshInterval) {
+        this.pollyAsyncClient = pollyAsyncClient;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "polly-voice-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.catalog = load();
+        refresher.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the voice with the given name that supports the engine, or null if
+     * there is none.
+     */
+    public CompletableFuture<Voice> findVoice(String name, String engine) {
+        return current().thenApply(loaded -> {
+            Voice voice = loaded.byName.get(name.toLowerCase(Locale.ROOT));
+            if (voice == null || !voice.supportedEnginesAsStrings().contains(engine)) {
+                return null;
+            }
+            return voice;
+        });
+    }
+
+    public CompletableFuture<List<Voice>> voicesForLanguage(String languageCode) {
+        return current().thenApply(loaded -> loaded.byLanguage.getOrDefault(languageCode, List.of()));
+    }
+
+    public CompletableFuture<List<Voice>> voicesForEngine(String engine) {
+        return current().thenApply(loaded -> loaded.byEngine.getOrDefault(engine, List.of()));
+    }
+
+    /**
+     * Reloads the catalog. Lookups keep using the current catalog until the new
+     * one is complete.
+     */
+    public void refresh() {
+        load().whenComplete((loaded, error) -> {
+            if (error != null) {
+                System.err.println("Unable to refresh the Polly voices: " + error.getMessage());
+            } else {
+                catalog = CompletableFuture.completedFuture(loaded);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of voice lookups.
+     */
+    public long lookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Returns the number of lookups answered from memory, without calling DescribeVoices.
+     */
+    public long lookupsFromMemory() {
+        return lookupsFromMemory.get();
+    }
+
+    /**
+     * Returns the DescribeVoices time avoided by lookups answered from memory,
+     * based on how long the most recent load of the catalog took.
+     */
+    public Duration latencySaved() {
+        return Duration.ofNanos(latencySavedNanos.get());
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private CompletableFuture<Catalog> current() {
+        lookups.incrementAndGet();
+        CompletableFuture<Catalog> current = catalog;
+        if (current.isDone() && !current.isCompletedExceptionally()) {
+            Catalog loaded = current.join();
+            lookupsFromMemory.incrementAndGet();
+            latencySavedNanos.addAndGet(loaded.loadNanos);
+            return current;
+        }
+        if (current.isCompletedExceptionally()) {
+            // The first load failed, so try again rather than failing every lookup.
+            synchronized (this) {
+                if (catalog == current) {
+                    catalog = load();
+                }
+                return catalog;
+            }
+        }
+        return current;
+    }
+
+    private CompletableFuture<Catalog> load() {
+        long start = System.nanoTime();
+        return loadPages(null, new ArrayList<>())
+                .thenApply(voices -> new Catalog(voices, System.nanoTime() - start));
+    }
+
+    private CompletableFuture<List<Voice>> loadPages(String nextToken, List<Voice> voices) {
+        DescribeVoicesRequest request = DescribeVoicesRequest.builder()
+                .nextToken(nextToken)
+                .build();
+
+        return pollyAsyncClient.describeVoices(request).thenCompose(response -> {
+            voices.addAll(response.voices());
+            if (response.nextToken() == null) {
+                return CompletableFuture.completedFuture(voices);
+            }
+            return loadPages(response.nextToken(), voices);
+        });
+    }
+
+    private static final class Catalog {
+        private final Map<String, Voice> byName = new HashMap<>();
+        private final Map<String, List<Voice>> byLanguage = new HashMap<>();
+        private final Map<String, List<Voice>> byEngine = new HashMap<>();
+        private final long loadNanos;
+
+        private Catalog(List<Voice> voices, long loadNanos) {
+            this.loadNanos = loadNanos;
+            for (Voice voice : voices) {
+                byName.put(voice.name().toLowerCase(Locale.ROOT), voice);
+                byLanguage.computeIfAbsent(voice.languageCodeAsString(), code -> new ArrayList<>()).add(voice);
+                for (String engine : voice.supportedEnginesAsStrings()) {
+                    byEngine.computeIfAbsent(engine, e -> new ArrayList<>()).add(voice);
+                }
+            }
+            byLanguage.replaceAll((code, list) -> Collections.unmodifiableList(list));
+            byEngine.replaceAll((engine, list) -> Collections.unmodifiableList(list));
+        }
+    }
+}
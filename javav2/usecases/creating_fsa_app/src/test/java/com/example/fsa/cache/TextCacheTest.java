@@ -0,0 +1,117 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs TextCache in memory and over a FileTextStore in a temporary directory.
+ */
+class TextCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void countsHitsAndMisses() {
+        TextCache cache = new TextCache(10, Duration.ofMinutes(5), null);
+
+        assertNull(cache.get("etag-1"));
+        cache.put("etag-1", "Extracted text");
+        assertEquals("Extracted text", cache.get("etag-1"));
+        assertEquals("Extracted text", cache.get("etag-1"));
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void missesAfterTheTimeToLive() throws InterruptedException, IOException {
+        TextCache cache = new TextCache(10, Duration.ofMillis(50), new FileTextStore(directory, 10));
+
+        cache.put("etag-1", "Extracted text");
+        Thread.sleep(100);
+        assertNull(cache.get("etag-1"));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        // The expired file is deleted when it is read.
+        assertEquals(0, countFiles(".txt"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryFromMemory() {
+        TextCache cache = new TextCache(2, Duration.ofMinutes(5), null);
+
+        cache.put("etag-1", "One");
+        cache.put("etag-2", "Two");
+        cache.get("etag-1");
+        cache.put("etag-3", "Three");
+
+        assertEquals("One", cache.get("etag-1"));
+        assertNull(cache.get("etag-2"));
+        assertEquals("Three", cache.get("etag-3"));
+    }
+
+    @Test
+    void readsEntriesThatAnotherCacheStored() {
+        new TextCache(10, Duration.ofMinutes(5), new FileTextStore(directory, 10)).put("etag-1", "Extracted text");
+
+        // A new cache stands for a cold start that only has the files.
+        TextCache cache = new TextCache(10, Duration.ofMinutes(5), new FileTextStore(directory, 10));
+        assertEquals("Extracted text", cache.get("etag-1"));
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    void deletesOldFilesOnlyAfterPassingTheLimitByAMargin() throws IOException {
+        FileTextStore store = new FileTextStore(directory, 10);
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(5));
+
+        for (int i = 0; i < 11; i++) {
+            store.put("etag-" + i, "Text " + i, expiresAt);
+        }
+        assertEquals(11, countFiles(".txt"));
+
+        store.put("etag-11", "Text 11", expiresAt);
+        assertEquals(10, countFiles(".txt"));
+    }
+
+    @Test
+    void deletesTheTemporaryFileWhenAPutFails() throws IOException, NoSuchAlgorithmException {
+        FileTextStore store = new FileTextStore(directory, 10);
+        // A directory that is not empty in place of the entry makes the move fail.
+        Path entry = Files.createDirectory(directory.resolve(sha256("etag-1") + ".txt"));
+        Files.createFile(entry.resolve("blocker"));
+
+        store.put("etag-1", "Extracted text", Instant.now().plus(Duration.ofMinutes(5)));
+        assertEquals(0, countFiles(".tmp"));
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private static String sha256(String key) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+}
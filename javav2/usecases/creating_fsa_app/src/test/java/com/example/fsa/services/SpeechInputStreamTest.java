@@ -0,0 +1,97 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.fsa.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads SpeechInputStream over segments whose synthesis the test completes by hand.
+ */
+class SpeechInputStreamTest {
+
+    @Test
+    void readsTheSegmentsInOrder() throws IOException {
+        Synthesizer synthesizer = new Synthesizer();
+        SpeechSegments segments = new SpeechSegments(List.of("One. ", "Two. ", "Three."), synthesizer::start, 2);
+        synthesizer.completeAll();
+
+        try (SpeechInputStream audio = new SpeechInputStream(segments)) {
+            assertEquals("One. Two. Three.", new String(audio.readAllBytes(), StandardCharsets.UTF_8));
+            assertEquals(-1, audio.read());
+        }
+    }
+
+    @Test
+    void reportsAFailedSegmentAsAnIOException() throws IOException {
+        Synthesizer synthesizer = new Synthesizer();
+        SpeechSegments segments = new SpeechSegments(List.of("One. ", "Two. ", "Three. ", "Four."),
+                synthesizer::start, 2);
+
+        try (SpeechInputStream audio = new SpeechInputStream(segments)) {
+            synthesizer.complete("One. ");
+            assertEquals('O', audio.read());
+            synthesizer.fail("Two. ", new IllegalStateException("Throttled"));
+
+            IOException e = assertThrows(IOException.class, audio::readAllBytes);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            // The segment that was requested ahead of the failed one is cancelled.
+            assertTrue(synthesizer.started.get("Three. ").isCancelled());
+        }
+    }
+
+    @Test
+    void cancelsTheSegmentsInFlightWhenClosed() throws IOException {
+        Synthesizer synthesizer = new Synthesizer();
+        SpeechSegments segments = new SpeechSegments(List.of("One. ", "Two. ", "Three. ", "Four."),
+                synthesizer::start, 2);
+        SpeechInputStream audio = new SpeechInputStream(segments);
+
+        synthesizer.complete("One. ");
+        assertEquals('O', audio.read());
+        audio.close();
+
+        assertThrows(IOException.class, () -> audio.read(new byte[16]));
+        assertTrue(synthesizer.started.get("Two. ").isCancelled());
+        assertTrue(synthesizer.started.get("Three. ").isCancelled());
+        // No more chunks are sent after the stream is closed.
+        assertEquals(3, synthesizer.started.size());
+    }
+
+    /**
+     * Starts a future for each chunk that completes with the text of the chunk
+     * when the test says so.
+     */
+    private static final class Synthesizer {
+        private final Map<String, CompletableFuture<ByteBuffer>> started = new ConcurrentHashMap<>();
+
+        CompletableFuture<ByteBuffer> start(String chunk) {
+            return started.computeIfAbsent(chunk, c -> new CompletableFuture<>());
+        }
+
+        void complete(String chunk) {
+            start(chunk).complete(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        void completeAll() {
+            List.of("One. ", "Two. ", "Three.").forEach(this::complete);
+        }
+
+        void fail(String chunk, RuntimeException e) {
+            start(chunk).completeExceptionally(e);
+        }
+    }
+}